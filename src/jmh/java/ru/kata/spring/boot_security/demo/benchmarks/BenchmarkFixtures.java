@@ -0,0 +1,29 @@
+package ru.kata.spring.boot_security.demo.benchmarks;
+
+import ru.kata.spring.boot_security.demo.entities.Role;
+import ru.kata.spring.boot_security.demo.entities.User;
+
+import java.util.HashSet;
+import java.util.Set;
+
+final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    static User user(boolean admin) {
+        User user = new User("Ivan", "Ivanov");
+        user.setId(42L);
+        user.setEmail("ivan@mail.ru");
+        user.setAge(30);
+        user.setPassword("{bcrypt}$2a$10$3UJ1dGGafNpm9VG6aTQL8.0sEPLSLsf.Ww6No6ZmPilM0VeSfL05O");
+
+        Set<Role> roles = new HashSet<>();
+        roles.add(new Role(2L, "user"));
+        if (admin) {
+            roles.add(new Role(1L, "admin"));
+        }
+        user.setRoles(roles);
+        return user;
+    }
+}
@@ -0,0 +1,27 @@
+package ru.kata.spring.boot_security.demo.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// mvn -Pbenchmarks test-compile exec:exec [-Dbenchmarks.include=.*UserDao.*]
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : BenchmarkRunner.class.getPackageName() + ".*";
+        String output = args.length > 1 ? args[1] : "target/jmh-result.json";
+
+        Options options = new OptionsBuilder()
+                .include(include)
+                .exclude(BenchmarkRunner.class.getSimpleName())
+                // gc-профайлер добавляет gc.alloc.rate.norm — байты на операцию
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(output)
+                .build();
+        new Runner(options).run();
+    }
+}
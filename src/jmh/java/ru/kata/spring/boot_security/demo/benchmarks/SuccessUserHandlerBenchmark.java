@@ -0,0 +1,58 @@
+package ru.kata.spring.boot_security.demo.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import ru.kata.spring.boot_security.demo.configs.SuccessUserHandler;
+import ru.kata.spring.boot_security.demo.services.AccountDetails;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SuccessUserHandlerBenchmark {
+
+    @Param({"true", "false"})
+    private boolean admin;
+
+    @Param({"application/json", "text/html"})
+    private String accept;
+
+    private final SuccessUserHandler handler = new SuccessUserHandler();
+    private Authentication authentication;
+    private MockHttpServletRequest request;
+
+    @Setup
+    public void setUp() {
+        // как после входа: принципал — AccountDetails, authorities собраны из ролей один раз
+        AccountDetails principal = new AccountDetails(BenchmarkFixtures.user(admin));
+        authentication = new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+        request = new MockHttpServletRequest("POST", "/login");
+        request.addHeader("Accept", accept);
+    }
+
+    // сканирование authorities + формирование ответа/редиректа
+    @Benchmark
+    public MockHttpServletResponse onAuthenticationSuccess() throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        handler.onAuthenticationSuccess(request, response, authentication);
+        return response;
+    }
+}
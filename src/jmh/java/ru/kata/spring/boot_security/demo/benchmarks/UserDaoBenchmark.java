@@ -0,0 +1,64 @@
+package ru.kata.spring.boot_security.demo.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.kata.spring.boot_security.demo.dao.UserDao;
+import ru.kata.spring.boot_security.demo.entities.User;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class UserDaoBenchmark {
+
+    private User user;
+    private UserDao userDao;
+    private UserDao adminDao;
+
+    @Setup
+    public void setUp() {
+        user = BenchmarkFixtures.user(true);
+        userDao = new UserDao(BenchmarkFixtures.user(false));
+        adminDao = new UserDao(user);
+    }
+
+    // stream().toArray() + Arrays.copyOf при конвертации ролей
+    @Benchmark
+    public UserDao constructFromUser() {
+        return new UserDao(user);
+    }
+
+    @Benchmark
+    public boolean hasRole() {
+        return userDao.hasRole("user");
+    }
+
+    @Benchmark
+    public boolean isAdminMiss() {
+        return userDao.isAdmin();
+    }
+
+    @Benchmark
+    public boolean isAdminHit() {
+        return adminDao.isAdmin();
+    }
+
+    // новый HashSet на каждый вызов
+    @Benchmark
+    public Collection<?> userGetAuthorities() {
+        return user.getAuthorities();
+    }
+}
@@ -0,0 +1,45 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// базы, созданные прежним ddl-auto=update, baseline'ятся на версии 1 и V1 не получают, а в ней — колонки
+// version для оптимистичной блокировки; без них ddl-auto=validate не даёт приложению стартовать.
+// В MySQL нет ADD COLUMN IF NOT EXISTS, поэтому миграция на Java: колонка добавляется, только если её нет
+public class V6__Add_missing_version_columns extends BaseJavaMigration {
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        Connection connection = context.getConnection();
+        addVersionColumnIfMissing(connection, "users");
+        addVersionColumnIfMissing(connection, "roles");
+    }
+
+    private static void addVersionColumnIfMissing(Connection connection, String table) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            if (hasColumn(statement, table, "version")) {
+                return;
+            }
+            statement.execute("ALTER TABLE " + table + " ADD COLUMN version BIGINT NOT NULL DEFAULT 0");
+        }
+    }
+
+    // метаданные пустой выборки: не зависит от регистра имён в information_schema у MySQL и H2
+    private static boolean hasColumn(Statement statement, String table, String column) throws SQLException {
+        try (ResultSet rows = statement.executeQuery("SELECT * FROM " + table + " WHERE 1 = 0")) {
+            ResultSetMetaData metaData = rows.getMetaData();
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                if (column.equalsIgnoreCase(metaData.getColumnName(i))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+// в базах, baseline'нутых на версии 1, нет uk_roles_name_role из V1, и V3 сводит 'Admin' и 'admin' к двум
+// строкам 'admin' — findByNameRole на таких падает. Дубли сливаются в роль с меньшим id (связи user_roles
+// переносятся на неё), имена приводятся к канонической форме, и только после этого создаётся индекс
+public class V7__Merge_duplicate_role_names extends BaseJavaMigration {
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        Connection connection = context.getConnection();
+        for (List<Long> ids : duplicateGroups(connection)) {
+            Long target = ids.get(0);
+            for (Long duplicate : ids.subList(1, ids.size())) {
+                mergeRole(connection, duplicate, target);
+            }
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("UPDATE roles SET name_role = LOWER(TRIM(name_role))");
+            if (!hasUniqueIndex(connection, "roles", "name_role")) {
+                statement.execute("ALTER TABLE roles ADD CONSTRAINT uk_roles_name_role UNIQUE (name_role)");
+            }
+        }
+    }
+
+    // id ролей с одинаковым каноническим именем, по возрастанию
+    private static List<List<Long>> duplicateGroups(Connection connection) throws SQLException {
+        Map<String, List<Long>> byName = new HashMap<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT id, LOWER(TRIM(name_role)) FROM roles "
+                     + "WHERE name_role IS NOT NULL ORDER BY id")) {
+            while (rows.next()) {
+                byName.computeIfAbsent(rows.getString(2), name -> new ArrayList<>()).add(rows.getLong(1));
+            }
+        }
+        List<List<Long>> groups = new ArrayList<>();
+        for (List<Long> ids : byName.values()) {
+            if (ids.size() > 1) {
+                groups.add(ids);
+            }
+        }
+        return groups;
+    }
+
+    // у пользователя могут быть обе роли: переносятся только связи, которых у целевой роли ещё нет
+    private static void mergeRole(Connection connection, Long duplicate, Long target) throws SQLException {
+        Set<Long> targetUsers = userIds(connection, target);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO user_roles (user_id, role_id) VALUES (?, ?)")) {
+            for (Long userId : userIds(connection, duplicate)) {
+                if (!targetUsers.contains(userId)) {
+                    insert.setLong(1, userId);
+                    insert.setLong(2, target);
+                    insert.addBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+        try (PreparedStatement links = connection.prepareStatement("DELETE FROM user_roles WHERE role_id = ?");
+             PreparedStatement role = connection.prepareStatement("DELETE FROM roles WHERE id = ?")) {
+            links.setLong(1, duplicate);
+            links.executeUpdate();
+            role.setLong(1, duplicate);
+            role.executeUpdate();
+        }
+    }
+
+    private static Set<Long> userIds(Connection connection, Long roleId) throws SQLException {
+        Set<Long> userIds = new HashSet<>();
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT user_id FROM user_roles WHERE role_id = ?")) {
+            statement.setLong(1, roleId);
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    userIds.add(rows.getLong(1));
+                }
+            }
+        }
+        return userIds;
+    }
+
+    // уникальный индекс ровно по одной колонке, под любым именем (ddl-auto называл их UK_<хэш>)
+    private static boolean hasUniqueIndex(Connection connection, String table, String column) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        Map<String, List<String>> columnsByIndex = new HashMap<>();
+        try (ResultSet rows = metaData.getIndexInfo(connection.getCatalog(), connection.getSchema(),
+                storedName(metaData, table), true, false)) {
+            while (rows.next()) {
+                String index = rows.getString("INDEX_NAME");
+                String indexColumn = rows.getString("COLUMN_NAME");
+                if (index != null && indexColumn != null) {
+                    columnsByIndex.computeIfAbsent(index, name -> new ArrayList<>()).add(indexColumn);
+                }
+            }
+        }
+        return columnsByIndex.values().stream()
+                .anyMatch(columns -> columns.size() == 1 && column.equalsIgnoreCase(columns.get(0)));
+    }
+
+    // H2 хранит имена без кавычек в верхнем регистре, MySQL — как написаны
+    private static String storedName(DatabaseMetaData metaData, String name) throws SQLException {
+        return metaData.storesUpperCaseIdentifiers() ? name.toUpperCase(Locale.ROOT) : name;
+    }
+}
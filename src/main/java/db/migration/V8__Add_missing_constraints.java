@@ -0,0 +1,93 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// ограничения из V1, которых может не быть в базах, baseline'нутых на версии 1: ddl-auto=update создавал их
+// только вместе с таблицей и молча пропускал неудавшиеся. ddl-auto=validate ограничения не проверяет, а запись
+// через JDBC рассчитывает на uk_users_email (DuplicateKeyException → 409 и DUPLICATE в импорте).
+// uk_roles_name_role добавляет V7; внешний ключ под другим именем остаётся как есть
+public class V8__Add_missing_constraints extends BaseJavaMigration {
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        Connection connection = context.getConnection();
+        try (Statement statement = connection.createStatement()) {
+            if (!hasUniqueIndex(connection, "users", "email")) {
+                requireNoDuplicateEmails(statement);
+                statement.execute("ALTER TABLE users ADD CONSTRAINT uk_users_email UNIQUE (email)");
+            }
+            if (!hasForeignKey(connection, "user_roles", "user_id")) {
+                statement.executeUpdate("DELETE FROM user_roles WHERE user_id NOT IN (SELECT id FROM users)");
+                statement.execute("ALTER TABLE user_roles ADD CONSTRAINT fk_user_roles_user "
+                        + "FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE");
+            }
+            if (!hasForeignKey(connection, "user_roles", "role_id")) {
+                statement.executeUpdate("DELETE FROM user_roles WHERE role_id NOT IN (SELECT id FROM roles)");
+                statement.execute("ALTER TABLE user_roles ADD CONSTRAINT fk_user_roles_role "
+                        + "FOREIGN KEY (role_id) REFERENCES roles (id)");
+            }
+        }
+    }
+
+    // какую из учёток оставить, миграция не решает: с дублями база не обновляется
+    private static void requireNoDuplicateEmails(Statement statement) throws SQLException {
+        List<String> duplicates = new ArrayList<>();
+        try (ResultSet rows = statement.executeQuery(
+                "SELECT email FROM users GROUP BY email HAVING COUNT(*) > 1")) {
+            while (rows.next()) {
+                duplicates.add(rows.getString(1));
+            }
+        }
+        if (!duplicates.isEmpty()) {
+            throw new IllegalStateException("Duplicate emails prevent adding uk_users_email: " + duplicates);
+        }
+    }
+
+    // уникальный индекс ровно по одной колонке, под любым именем (ddl-auto называл их UK_<хэш>)
+    private static boolean hasUniqueIndex(Connection connection, String table, String column) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        Map<String, List<String>> columnsByIndex = new HashMap<>();
+        try (ResultSet rows = metaData.getIndexInfo(connection.getCatalog(), connection.getSchema(),
+                storedName(metaData, table), true, false)) {
+            while (rows.next()) {
+                String index = rows.getString("INDEX_NAME");
+                String indexColumn = rows.getString("COLUMN_NAME");
+                if (index != null && indexColumn != null) {
+                    columnsByIndex.computeIfAbsent(index, name -> new ArrayList<>()).add(indexColumn);
+                }
+            }
+        }
+        return columnsByIndex.values().stream()
+                .anyMatch(columns -> columns.size() == 1 && column.equalsIgnoreCase(columns.get(0)));
+    }
+
+    private static boolean hasForeignKey(Connection connection, String table, String column) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        try (ResultSet rows = metaData.getImportedKeys(connection.getCatalog(), connection.getSchema(),
+                storedName(metaData, table))) {
+            while (rows.next()) {
+                if (column.equalsIgnoreCase(rows.getString("FKCOLUMN_NAME"))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    // H2 хранит имена без кавычек в верхнем регистре, MySQL — как написаны
+    private static String storedName(DatabaseMetaData metaData, String name) throws SQLException {
+        return metaData.storesUpperCaseIdentifiers() ? name.toUpperCase(Locale.ROOT) : name;
+    }
+}
@@ -0,0 +1,55 @@
+package ru.kata.spring.boot_security.demo.configs;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+// отдельная цепочка для /actuator/**: Prometheus ходит по HTTP Basic под своей учёткой,
+// админ из браузера пускается по уже существующей сессии
+@Configuration
+@Order(1)
+public class ActuatorSecurityConfig extends WebSecurityConfigurerAdapter {
+
+    private final PasswordEncoder passwordEncoder;
+
+    private final String username;
+    private final String password;
+
+    public ActuatorSecurityConfig(PasswordEncoder passwordEncoder,
+                                  @Value("${app.metrics.username}") String username,
+                                  @Value("${app.metrics.password:}") String password) {
+        // пароля по умолчанию нет: без METRICS_PASSWORD метрики остались бы под угадываемой учёткой
+        if (password == null || password.isBlank()) {
+            throw new IllegalStateException("app.metrics.password is not set: provide METRICS_PASSWORD");
+        }
+        this.passwordEncoder = passwordEncoder;
+        this.username = username;
+        this.password = password;
+    }
+
+    @Override
+    protected void configure(AuthenticationManagerBuilder auth) throws Exception {
+        auth.inMemoryAuthentication()
+                .passwordEncoder(passwordEncoder)
+                .withUser(username)
+                .password(passwordEncoder.encode(password))
+                .authorities("metrics");
+    }
+
+    @Override
+    protected void configure(HttpSecurity http) throws Exception {
+        http
+                .antMatcher("/actuator/**")
+                .authorizeRequests()
+                .antMatchers("/actuator/health").permitAll()
+                .anyRequest().hasAnyAuthority("metrics", "admin")
+                .and()
+                .httpBasic()
+                .and()
+                .csrf().disable();
+    }
+}
@@ -0,0 +1,73 @@
+package ru.kata.spring.boot_security.demo.configs;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.Transient;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.kata.spring.boot_security.demo.services.AccountDetails;
+import ru.kata.spring.boot_security.demo.services.AuthTokenService;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+// Authorization: Bearer <токен из /api/auth/token>. Запрос без заголовка идёт дальше как обычно (сессия, форма входа)
+public class BearerTokenFilter extends OncePerRequestFilter {
+
+    private static final String PREFIX = "Bearer ";
+
+    private final AuthTokenService authTokenService;
+
+    public BearerTokenFilter(AuthTokenService authTokenService) {
+        this.authTokenService = authTokenService;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header == null || !header.startsWith(PREFIX)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        AccountDetails account = authTokenService.verify(header.substring(PREFIX.length()).trim());
+        if (account == null) {
+            response.setHeader(HttpHeaders.WWW_AUTHENTICATE, "Bearer error=\"invalid_token\"");
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Invalid or expired token");
+            return;
+        }
+
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(new TokenAuthentication(account));
+        SecurityContextHolder.setContext(context);
+        filterChain.doFilter(request, response);
+    }
+
+    // @Transient: контекст с такой аутентификацией не сохраняется в HttpSession, cookie сессии не появляется
+    @Transient
+    private static final class TokenAuthentication extends AbstractAuthenticationToken {
+
+        private final AccountDetails account;
+
+        private TokenAuthentication(AccountDetails account) {
+            super(account.getAuthorities());
+            this.account = account;
+            setAuthenticated(true);
+        }
+
+        @Override
+        public Object getCredentials() {
+            return null;
+        }
+
+        @Override
+        public Object getPrincipal() {
+            return account;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package ru.kata.spring.boot_security.demo.configs;
+
+import org.springframework.core.serializer.DefaultDeserializer;
+import org.springframework.core.serializer.DefaultSerializer;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextImpl;
+import ru.kata.spring.boot_security.demo.services.AccountDetails;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+// атрибуты сессии в байтах: вошедший по форме пользователь — тег, id, email и authorities (десятки байт
+// вместо килобайтов Java-сериализации, без хэша пароля); всё остальное — обычной Java-сериализацией
+final class CompactSessionCodec {
+
+    private static final byte JAVA = 0;
+    private static final byte ACCOUNT_CONTEXT = 1;
+
+    private final DefaultSerializer javaSerializer = new DefaultSerializer();
+    private final DefaultDeserializer javaDeserializer;
+
+    CompactSessionCodec(ClassLoader classLoader) {
+        this.javaDeserializer = new DefaultDeserializer(classLoader);
+    }
+
+    byte[] encode(Object attribute) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            AccountDetails account = accountOf(attribute);
+            if (account == null) {
+                out.writeByte(JAVA);
+                javaSerializer.serialize(attribute, out);
+            } else {
+                Collection<? extends GrantedAuthority> authorities = account.getAuthorities();
+                out.writeByte(ACCOUNT_CONTEXT);
+                out.writeLong(account.getId());
+                out.writeUTF(account.getUsername());
+                out.writeShort(authorities.size());
+                for (GrantedAuthority authority : authorities) {
+                    out.writeUTF(authority.getAuthority());
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot serialize session attribute " + attribute.getClass().getName(), e);
+        }
+        return bytes.toByteArray();
+    }
+
+    Object decode(byte[] bytes) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            byte tag = in.readByte();
+            if (tag == JAVA) {
+                return javaDeserializer.deserialize(in);
+            }
+            if (tag != ACCOUNT_CONTEXT) {
+                throw new IllegalStateException("Unknown session attribute encoding " + tag);
+            }
+            long id = in.readLong();
+            String email = in.readUTF();
+            int count = in.readUnsignedShort();
+            List<String> authorities = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                authorities.add(in.readUTF());
+            }
+            AccountDetails account = AccountDetails.of(id, email, authorities);
+            return new SecurityContextImpl(
+                    new UsernamePasswordAuthenticationToken(account, null, account.getAuthorities()));
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot deserialize session attribute", e);
+        }
+    }
+
+    // только контекст формы входа: details (адрес, id сессии) и прочие типы аутентификации не сжимаются
+    private static AccountDetails accountOf(Object attribute) {
+        if (attribute == null || attribute.getClass() != SecurityContextImpl.class) {
+            return null;
+        }
+        Authentication authentication = ((SecurityContextImpl) attribute).getAuthentication();
+        if (authentication == null || authentication.getClass() != UsernamePasswordAuthenticationToken.class
+                || !authentication.isAuthenticated() || !(authentication.getPrincipal() instanceof AccountDetails)) {
+            return null;
+        }
+        AccountDetails account = (AccountDetails) authentication.getPrincipal();
+        return account.getId() == null ? null : account;
+    }
+}
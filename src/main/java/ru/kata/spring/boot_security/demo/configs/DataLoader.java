@@ -1,5 +1,7 @@
 package ru.kata.spring.boot_security.demo.configs;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 import ru.kata.spring.boot_security.demo.dao.UserDao;
 import ru.kata.spring.boot_security.demo.entities.Role;
@@ -11,6 +13,8 @@ import javax.annotation.PostConstruct;
 @Component
 public class DataLoader {
 
+    private static final Logger log = LoggerFactory.getLogger(DataLoader.class);
+
     private final RoleService roleService;
     private final UserService userService;
 
@@ -21,29 +25,29 @@ public class DataLoader {
 
     @PostConstruct
     public void loadData() {
-        System.out.println("=== DataLoader: Initializing application data ===");
+        log.info("Initializing application data");
 
 
         try {
             roleService.getRoleByName("user");
-            System.out.println("Role 'user' already exists");
+            log.debug("Role already exists role=user");
         } catch (Exception e) {
             roleService.addRole(new Role(null, "user"));
-            System.out.println("Created role 'user'");
+            log.info("Created role role=user");
         }
 
         try {
             roleService.getRoleByName("admin");
-            System.out.println("Role 'admin' already exists");
+            log.debug("Role already exists role=admin");
         } catch (Exception e) {
             roleService.addRole(new Role(null, "admin"));
-            System.out.println("Created role 'admin'");
+            log.info("Created role role=admin");
         }
 
 
         try {
             userService.getUserByEmail("admin@admin.com");
-            System.out.println("Admin user already exists");
+            log.debug("Admin user already exists email=admin@admin.com");
         } catch (Exception e) {
 
             UserDao adminUser = new UserDao();
@@ -56,12 +60,12 @@ public class DataLoader {
 
             boolean created = userService.addUser(adminUser);
             if (created) {
-                System.out.println("Created admin user: admin@admin.com / admin");
+                log.info("Created admin user email=admin@admin.com");
             } else {
-                System.out.println("Failed to create admin user");
+                log.warn("Failed to create admin user email=admin@admin.com");
             }
         }
 
-        System.out.println("=== DataLoader: Initialization complete ===");
+        log.info("Application data initialized");
     }
 }
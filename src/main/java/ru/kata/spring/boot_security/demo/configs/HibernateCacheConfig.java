@@ -0,0 +1,78 @@
+package ru.kata.spring.boot_security.demo.configs;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.kata.spring.boot_security.demo.entities.Role;
+import ru.kata.spring.boot_security.demo.entities.User;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// регионы второго уровня Hibernate заводятся здесь с размерами и TTL из app.cache.*;
+// регион, не описанный тут, Hibernate не создаст молча (missing_cache_strategy=fail)
+@Configuration
+public class HibernateCacheConfig {
+
+    public static final String USER_ROLES_REGION = User.class.getName() + ".roles";
+
+    @Value("${app.cache.roles.max-size}")
+    private long rolesMaxSize;
+
+    @Value("${app.cache.roles.ttl-seconds}")
+    private long rolesTtlSeconds;
+
+    @Value("${app.cache.user-roles.max-size}")
+    private long userRolesMaxSize;
+
+    @Value("${app.cache.user-roles.ttl-seconds}")
+    private long userRolesTtlSeconds;
+
+    @Value("${app.cache.queries.max-size}")
+    private long queriesMaxSize;
+
+    @Value("${app.cache.queries.ttl-seconds}")
+    private long queriesTtlSeconds;
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager() {
+        // свой URI на каждый контекст: провайдер JCache раздаёт менеджеры-синглтоны, а тесты поднимают несколько контекстов
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("hibernate:" + UUID.randomUUID()), getClass().getClassLoader());
+
+        createRegion(cacheManager, Role.class.getName(), rolesMaxSize, rolesTtlSeconds);
+        createRegion(cacheManager, USER_ROLES_REGION, userRolesMaxSize, userRolesTtlSeconds);
+        createRegion(cacheManager, RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME, queriesMaxSize, queriesTtlSeconds);
+        // метки времени изменения таблиц: по записи на таблицу, вытеснять их нельзя, иначе кэш запросов отдаст устаревшее
+        createRegion(cacheManager, RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, 0, 0);
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernateCacheCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> {
+            properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    private static void createRegion(CacheManager cacheManager, String name, long maxSize, long ttlSeconds) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        if (maxSize > 0) {
+            configuration.setMaximumSize(OptionalLong.of(maxSize));
+        }
+        if (ttlSeconds > 0) {
+            configuration.setExpireAfterWrite(OptionalLong.of(TimeUnit.SECONDS.toNanos(ttlSeconds)));
+        }
+        cacheManager.createCache(name, configuration);
+    }
+}
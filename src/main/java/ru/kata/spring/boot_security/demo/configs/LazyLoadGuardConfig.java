@@ -0,0 +1,60 @@
+package ru.kata.spring.boot_security.demo.configs;
+
+import org.hibernate.LazyInitializationException;
+import org.hibernate.boot.Metadata;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.InitializeCollectionEventListener;
+import org.hibernate.event.spi.LoadEventListener;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.jpa.boot.internal.EntityManagerFactoryBuilderImpl;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+// тестовый режим: ленивая загрузка коллекции или прокси вне транзакции падает сразу,
+// даже если сессия Hibernate ещё открыта. DTO должны собираться внутри сервисных транзакций
+@Configuration
+@ConditionalOnProperty(name = "app.jpa.fail-on-lazy-load-outside-transaction", havingValue = "true")
+public class LazyLoadGuardConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer lazyLoadGuardCustomizer() {
+        IntegratorProvider integrators = () -> List.of(new LazyLoadGuard());
+        return properties -> properties.put(EntityManagerFactoryBuilderImpl.INTEGRATOR_PROVIDER, integrators);
+    }
+
+    private static final class LazyLoadGuard implements Integrator {
+
+        @Override
+        public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory,
+                              SessionFactoryServiceRegistry serviceRegistry) {
+            EventListenerRegistry registry = serviceRegistry.getService(EventListenerRegistry.class);
+            registry.prependListeners(EventType.INIT_COLLECTION,
+                    (InitializeCollectionEventListener) event -> requireTransaction(event.getCollection().getRole()));
+            // IMMEDIATE_LOAD — инициализация прокси; find/get по id сюда не попадают
+            registry.prependListeners(EventType.LOAD, (LoadEventListener) (event, loadType) -> {
+                if (loadType == LoadEventListener.IMMEDIATE_LOAD) {
+                    requireTransaction(event.getEntityClassName());
+                }
+            });
+        }
+
+        @Override
+        public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+        }
+
+        private static void requireTransaction(String target) {
+            if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+                throw new LazyInitializationException("Lazy load of " + target + " outside a transaction");
+            }
+        }
+    }
+}
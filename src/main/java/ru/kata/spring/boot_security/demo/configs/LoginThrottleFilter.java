@@ -0,0 +1,60 @@
+package ru.kata.spring.boot_security.demo.configs;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.kata.spring.boot_security.demo.services.LoginThrottle;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+// POST /login: лимит попыток проверяется до UsernamePasswordAuthenticationFilter, то есть до запроса в БД и BCrypt
+public class LoginThrottleFilter extends OncePerRequestFilter {
+
+    private static final RequestMatcher LOGIN = new AntPathRequestMatcher("/login", "POST");
+
+    private final LoginThrottle loginThrottle;
+    private final String usernameParameter;
+
+    public LoginThrottleFilter(LoginThrottle loginThrottle, String usernameParameter) {
+        this.loginThrottle = loginThrottle;
+        this.usernameParameter = usernameParameter;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !LOGIN.matches(request);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String email = request.getParameter(usernameParameter);
+        // за прокси — адрес клиента из X-Forwarded-For, если его выставил доверенный прокси (server.forward-headers-strategy)
+        String address = request.getRemoteAddr();
+
+        long retryAfter = loginThrottle.tryAcquire(email, address);
+        if (retryAfter > 0) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+            response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), "Too many login attempts");
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+
+        // при успехе фильтр формы кладёт аутентификацию в контекст, при ошибке — редирект на /login?error без неё
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken)) {
+            loginThrottle.recordSuccess(email);
+        }
+    }
+}
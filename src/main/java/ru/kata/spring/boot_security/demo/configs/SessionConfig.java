@@ -0,0 +1,47 @@
+package ru.kata.spring.boot_security.demo.configs;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.core.convert.support.GenericConversionService;
+import org.springframework.session.MapSessionRepository;
+import org.springframework.session.Session;
+import org.springframework.session.config.SessionRepositoryCustomizer;
+import org.springframework.session.config.annotation.web.http.EnableSpringHttpSession;
+import org.springframework.session.jdbc.JdbcIndexedSessionRepository;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+
+// HTTP-сессии вне контейнера: по умолчанию Spring Session JDBC на основном datasource (таблицы — миграция V5),
+// app.session.store=memory — хранилище в памяти процесса для одного узла без схемы
+@Configuration
+public class SessionConfig {
+
+    @Bean
+    public SessionRepositoryCustomizer<JdbcIndexedSessionRepository> compactSessionCodecCustomizer() {
+        return repository -> {
+            CompactSessionCodec codec = new CompactSessionCodec(getClass().getClassLoader());
+            GenericConversionService conversionService = new GenericConversionService();
+            conversionService.addConverter(Object.class, byte[].class, (Converter<Object, byte[]>) codec::encode);
+            conversionService.addConverter(byte[].class, Object.class, (Converter<byte[], Object>) codec::decode);
+            repository.setConversionService(conversionService);
+        };
+    }
+
+    // свой SessionRepository: автоконфигурация Spring Session JDBC при нём не включается
+    @Configuration
+    @EnableSpringHttpSession
+    @ConditionalOnProperty(name = "app.session.store", havingValue = "memory")
+    static class InMemorySessionConfig {
+
+        @Bean
+        public MapSessionRepository sessionRepository(@Value("${server.servlet.session.timeout:30m}") Duration timeout) {
+            MapSessionRepository repository = new MapSessionRepository(new ConcurrentHashMap<String, Session>());
+            repository.setDefaultMaxInactiveInterval((int) timeout.getSeconds());
+            return repository;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.web.authentication.AuthenticationSuccessHandler;
 import org.springframework.stereotype.Component;
+import ru.kata.spring.boot_security.demo.entities.Role;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -25,18 +26,14 @@ public class SuccessUserHandler implements AuthenticationSuccessHandler {
             response.setContentType("application/json");
             response.setCharacterEncoding("UTF-8");
 
-            boolean isAdmin = authentication.getAuthorities().stream()
-                    .map(GrantedAuthority::getAuthority)
-                    .anyMatch(role -> role.equals("admin") || role.equals("ADMIN"));
+            boolean isAdmin = isAdmin(authentication);
 
             String jsonResponse = String.format("{\"success\": true, \"isAdmin\": %s}", isAdmin);
             response.getWriter().write(jsonResponse);
 
         } else {
             // Если это обычный запрос браузера
-            boolean isAdmin = authentication.getAuthorities().stream()
-                    .map(GrantedAuthority::getAuthority)
-                    .anyMatch(role -> role.equals("admin") || role.equals("ADMIN"));
+            boolean isAdmin = isAdmin(authentication);
 
             if (isAdmin) {
                 response.sendRedirect("/admin");
@@ -45,4 +42,11 @@ public class SuccessUserHandler implements AuthenticationSuccessHandler {
             }
         }
     }
+
+    // имена ролей хранятся в канонической форме, но authority могут прийти и не из БД
+    private static boolean isAdmin(Authentication authentication) {
+        return authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .anyMatch(role -> Role.ADMIN.equals(Role.canonicalName(role)));
+    }
 }
\ No newline at end of file
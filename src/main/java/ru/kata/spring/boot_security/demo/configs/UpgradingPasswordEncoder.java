@@ -0,0 +1,92 @@
+package ru.kata.spring.boot_security.demo.configs;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// DelegatingPasswordEncoder + замер времени проверки пароля по алгоритму/стоимости
+// и решение о перехэшировании при логине, если стоимость ниже целевой
+public class UpgradingPasswordEncoder implements PasswordEncoder {
+
+    static final String BCRYPT = "bcrypt";
+
+    private static final Pattern ID_PREFIX = Pattern.compile("^\\{([^}]*)}");
+    private static final Pattern BCRYPT_COST = Pattern.compile("^\\$2[aby]?\\$(\\d\\d)\\$");
+
+    private final DelegatingPasswordEncoder delegate;
+    private final int targetStrength;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public UpgradingPasswordEncoder(int targetStrength, MeterRegistry meterRegistry) {
+        this.targetStrength = targetStrength;
+        this.meterRegistry = meterRegistry;
+        this.delegate = new DelegatingPasswordEncoder(BCRYPT, Map.of(BCRYPT, new BCryptPasswordEncoder(targetStrength)));
+        // старые хэши в базе без префикса {bcrypt}
+        this.delegate.setDefaultPasswordEncoderForMatches(new BCryptPasswordEncoder());
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return delegate.encode(rawPassword);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        long start = System.nanoTime();
+        boolean matches = delegate.matches(rawPassword, encodedPassword);
+        timer(algorithm(encodedPassword), cost(encodedPassword), matches)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return matches;
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (encodedPassword == null || encodedPassword.isEmpty()) {
+            return false;
+        }
+        // у делегата есть только bcrypt: {noop} и прочие id не пройдут matches(), до перехэширования дело не дойдёт
+        if (!BCRYPT.equals(algorithm(encodedPassword))) {
+            return false;
+        }
+        // хэш без префикса с достаточной стоимостью не трогаем: перехэширование его бы только ослабило
+        int cost = cost(encodedPassword);
+        return cost > 0 && cost < targetStrength;
+    }
+
+    private Timer timer(String algorithm, int cost, boolean matches) {
+        String result = matches ? "match" : "mismatch";
+        return timers.computeIfAbsent(algorithm + ':' + cost + ':' + result, key -> Timer.builder("security.password.verify")
+                .description("Time spent verifying a password at login")
+                .tag("algorithm", algorithm)
+                .tag("cost", String.valueOf(cost))
+                .tag("result", result)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    static String algorithm(String encodedPassword) {
+        if (encodedPassword == null) {
+            return "none";
+        }
+        Matcher matcher = ID_PREFIX.matcher(encodedPassword);
+        return matcher.find() ? matcher.group(1) : BCRYPT;
+    }
+
+    static int cost(String encodedPassword) {
+        if (encodedPassword == null) {
+            return 0;
+        }
+        String hash = ID_PREFIX.matcher(encodedPassword).replaceFirst("");
+        Matcher matcher = BCRYPT_COST.matcher(hash);
+        return matcher.find() ? Integer.parseInt(matcher.group(1)) : 0;
+    }
+}
@@ -1,17 +1,22 @@
 package ru.kata.spring.boot_security.demo.configs;
 
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
-import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import ru.kata.spring.boot_security.demo.services.AuthTokenService;
+import ru.kata.spring.boot_security.demo.services.LoginThrottle;
+import ru.kata.spring.boot_security.demo.services.UserService;
 
 import static javax.management.Query.and;
 
@@ -20,18 +25,31 @@ import static javax.management.Query.and;
 @EnableWebSecurity
 public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
 
-    private final UserDetailsService userDetailsService;
+    private final UserService userDetailsService;
     private  final SuccessUserHandler successUserHandler;
+    private final MeterRegistry meterRegistry;
+    private final AuthTokenService authTokenService;
+    private final LoginThrottle loginThrottle;
 
+    @Value("${app.security.bcrypt-strength:10}")
+    private int bcryptStrength;
 
-    public WebSecurityConfig(@Qualifier("userServiceImpl") @Lazy UserDetailsService userDetailsService, SuccessUserHandler successUserHandler) {
+
+    public WebSecurityConfig(@Qualifier("userServiceImpl") @Lazy UserService userDetailsService, SuccessUserHandler successUserHandler,
+                             MeterRegistry meterRegistry, AuthTokenService authTokenService, LoginThrottle loginThrottle) {
         this.userDetailsService = userDetailsService;
         this.successUserHandler = successUserHandler;
+        this.meterRegistry = meterRegistry;
+        this.authTokenService = authTokenService;
+        this.loginThrottle = loginThrottle;
     }
 
     @Override
     public void configure(AuthenticationManagerBuilder auth) throws Exception {
-        auth.userDetailsService(userDetailsService).passwordEncoder(passwordEncoder());
+        // при успешном логине хэш со слабой стоимостью перезаписывается через UserDetailsPasswordService
+        auth.userDetailsService(userDetailsService)
+                .passwordEncoder(passwordEncoder())
+                .userDetailsPasswordManager(userDetailsService);
     }
 
     @Override
@@ -40,6 +58,7 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
                 .authorizeRequests()
                 .antMatchers("/admin/**").hasAuthority("admin")
                 .antMatchers("/user/**").authenticated()
+                .antMatchers("/api/auth/cache-stats").hasAuthority("admin")
                 .antMatchers("/api/**").permitAll() // REST API доступен без аутентификации
                 .antMatchers("/login", "/css/**", "/js/**").permitAll()
                 .anyRequest().authenticated()
@@ -55,14 +74,27 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
                 .logoutUrl("/logout") // URL для выхода
                 .logoutSuccessUrl("/login?logout") // Редирект после выхода
                 .invalidateHttpSession(true) // Инвалидация сессии
-                .deleteCookies("JSESSIONID") // Удаление cookies
+                .deleteCookies("SESSION") // cookie Spring Session
                 .permitAll()
                 .and()
-                .csrf().disable();
+                .csrf().disable()
+                .addFilterBefore(new LoginThrottleFilter(loginThrottle, "email"), UsernamePasswordAuthenticationFilter.class);
+
+        // stateless-режим: Authorization: Bearer проверяется до формы входа, сессия под такой запрос не создаётся
+        if (authTokenService.isEnabled()) {
+            http.addFilterBefore(new BearerTokenFilter(authTokenService), UsernamePasswordAuthenticationFilter.class);
+        }
+    }
+
+    // для выдачи токенов в /api/auth/token: та же проверка пароля, что и у формы входа
+    @Bean
+    @Override
+    public AuthenticationManager authenticationManagerBean() throws Exception {
+        return super.authenticationManagerBean();
     }
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new UpgradingPasswordEncoder(bcryptStrength, meterRegistry);
     }
 
 }
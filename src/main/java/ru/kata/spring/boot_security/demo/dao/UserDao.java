@@ -16,6 +16,7 @@ public class UserDao {
     private Integer age;
     private String[] roles;
     private String email;
+    private Long version;
 
 
     public UserDao() {}
@@ -28,6 +29,7 @@ public class UserDao {
         this.email = user.getEmail();
         this.password = user.getPassword();
         this.age = user.getAge();
+        this.version = user.getVersion();
 
 
         if (user.getRoles() != null && !user.getRoles().isEmpty()) {
@@ -112,6 +114,14 @@ public class UserDao {
         this.age = age;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public String[] getRoles() {
         return roles != null ? roles.clone() : new String[0];
     }
@@ -0,0 +1,37 @@
+package ru.kata.spring.boot_security.demo.dao;
+
+public class UserImportResult {
+
+    public static final String CREATED = "CREATED";
+    public static final String DUPLICATE = "DUPLICATE";
+    public static final String INVALID = "INVALID";
+    public static final String FAILED = "FAILED";
+
+    private final int index;
+    private final String email;
+    private final String status;
+    private final String message;
+
+    public UserImportResult(int index, String email, String status, String message) {
+        this.index = index;
+        this.email = email;
+        this.status = status;
+        this.message = message;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,25 @@
+package ru.kata.spring.boot_security.demo.dao;
+
+import java.util.List;
+
+public class UserPage {
+    private final List<UserDao> users;
+    private final Long nextCursor;
+
+    public UserPage(List<UserDao> users, Long nextCursor) {
+        this.users = users;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<UserDao> getUsers() {
+        return users;
+    }
+
+    public Long getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean isHasNext() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,26 @@
+package ru.kata.spring.boot_security.demo.dao;
+
+import java.util.List;
+
+// курсор непрозрачный: в нём закодированы значения ключей сортировки последней строки
+public class UserSearchPage {
+    private final List<UserDao> users;
+    private final String nextCursor;
+
+    public UserSearchPage(List<UserDao> users, String nextCursor) {
+        this.users = users;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<UserDao> getUsers() {
+        return users;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean isHasNext() {
+        return nextCursor != null;
+    }
+}
@@ -4,22 +4,35 @@ package ru.kata.spring.boot_security.demo.entities;
 
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.security.core.GrantedAuthority;
 
 import javax.persistence.*;
+import java.util.Locale;
 import java.util.Objects;
 import java.util.Set;
 
 @Entity
 @Table(name = "roles")
+// роли читаются при каждой аутентификации и в setRoles; READ_WRITE, а не READ_ONLY: PUT /api/roles их переименовывает
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Role implements GrantedAuthority {
 
+    public static final String ADMIN = "admin";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "roles_id")
+    @TableGenerator(name = "roles_id", table = "id_generators", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "roles", allocationSize = 50)
     private Long id;
 
     private String nameRole;
 
+    @Version
+    private long version;
+
     @ManyToMany(mappedBy = "roles", fetch = FetchType.LAZY)
     @JsonIgnore // ← ДОБАВЬТЕ ЭТУ АННОТАЦИЮ
     private Set<User> users;
@@ -27,6 +40,11 @@ public class Role implements GrantedAuthority {
     public Role() {
     }
 
+    // каноническая форма имени: в ней роль хранится в name_role и по ней идут все поиски (уникальный индекс)
+    public static String canonicalName(String name) {
+        return name != null ? name.trim().toLowerCase(Locale.ROOT) : "";
+    }
+
     public Role(Long id, String nameRole) {
         this.id = id;
         this.nameRole = nameRole;
@@ -48,6 +66,10 @@ public class Role implements GrantedAuthority {
         this.nameRole = nameRole;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
     public Set<User> getUsers() {
         return users;
     }
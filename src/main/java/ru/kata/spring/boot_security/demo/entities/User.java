@@ -1,6 +1,8 @@
 package ru.kata.spring.boot_security.demo.entities;
 
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import ru.kata.spring.boot_security.demo.dao.UserDao;
@@ -12,11 +14,15 @@ import java.util.Objects;
 import java.util.Set;
 
 @Entity
+// схема и индексы: db/migration
 @Table(name = "users")
 public class User implements UserDetails {
 
+    // пул id из id_generators (V4): вставки батчатся, шаг должен совпадать с миграцией
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "users_id")
+    @TableGenerator(name = "users_id", table = "id_generators", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "users", allocationSize = 50)
     private Long id;
     private  String firstName;
     private  String lastName;
@@ -28,7 +34,14 @@ public class User implements UserDetails {
     @Column(unique = true, nullable = false)
     private String email;
 
-    @ManyToMany(fetch = FetchType.LAZY, cascade = CascadeType.MERGE)
+    // увеличивается Hibernate при любом изменении, включая состав ролей; из неё строится ETag
+    @Version
+    private long version;
+
+    // роли только связываются: каскадный merge перезаписывал бы их устаревшими копиями из снимка RoleService.
+    // Коллекция кэшируется (id ролей); записи в user_roles через UserJdbcRepo сами вытесняют её из кэша
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+    @ManyToMany(fetch = FetchType.LAZY)
     @JoinTable(name = "user_roles",
             joinColumns = @JoinColumn(
                     name = "user_id",
@@ -105,6 +118,10 @@ public class User implements UserDetails {
         this.age = age;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
     public String getPassword() {
         return password;
     }
@@ -0,0 +1,7 @@
+package ru.kata.spring.boot_security.demo.repository;
+
+// id и версия строки: всё, что нужно для ETag, без чтения остальных колонок
+public interface EntityVersion {
+    Long getId();
+    Long getVersion();
+}
@@ -2,21 +2,28 @@ package ru.kata.spring.boot_security.demo.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.kata.spring.boot_security.demo.entities.Role;
 
+import javax.persistence.QueryHint;
 import java.util.List;
 import java.util.Optional;
 
 
 @Repository
 public interface RoleRepo extends JpaRepository<Role, Long> {
+    // кэш запросов хранит id, сами роли берутся из кэша сущностей: /api/roles и снимок RoleService не ходят в БД
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"))
     List<Role> findAll();
+
+    // имя передаётся в канонической форме (Role.canonicalName): равенство идёт по уникальному индексу name_role
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"))
     Optional<Role> findByNameRole(String nameRole);
     Optional<Role> findById(Long id);
 
-    @Query("SELECT r FROM Role r WHERE LOWER(r.nameRole) = LOWER(:nameRole)")
-    Optional<Role> findByNameRoleIgnoreCase(@Param("nameRole") String nameRole);
+    @Query("SELECT r.id AS id, r.version AS version FROM Role r WHERE r.id = :id")
+    Optional<EntityVersion> findVersionById(@Param("id") Long id);
 }
\ No newline at end of file
@@ -0,0 +1,174 @@
+package ru.kata.spring.boot_security.demo.repository;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.kata.spring.boot_security.demo.configs.HibernateCacheConfig;
+import ru.kata.spring.boot_security.demo.entities.Role;
+import ru.kata.spring.boot_security.demo.entities.User;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// массовые и условные операции над users/user_roles в обход Hibernate: без dirty checking и загрузки сущностей
+@Repository
+public class UserJdbcRepo {
+
+    // имена колонок подставляются в SQL, поэтому принимаются только из этого списка
+    private static final Set<String> UPDATABLE_COLUMNS = Set.of("first_name", "last_name", "email", "age", "password");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final SessionFactory sessionFactory;
+
+    public UserJdbcRepo(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate,
+                        EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+    }
+
+    public List<String> findExistingEmails(Collection<String> emails) {
+        if (emails.isEmpty()) {
+            return List.of();
+        }
+        return namedJdbcTemplate.queryForList("SELECT email FROM users WHERE email IN (:emails)",
+                Map.of("emails", emails), String.class);
+    }
+
+    // id берутся из того же пула, что и у Hibernate, и проставляются в переданных пользователей
+    public void insertUsers(List<User> users) {
+        assignIds(users);
+        jdbcTemplate.batchUpdate("INSERT INTO users (id, first_name, last_name, email, age, password, version) VALUES (?, ?, ?, ?, ?, ?, 0)",
+                users, users.size(), (ps, user) -> {
+                    ps.setLong(1, user.getId());
+                    ps.setString(2, user.getFirstName());
+                    ps.setString(3, user.getLastName());
+                    ps.setString(4, user.getEmail());
+                    ps.setInt(5, user.getAge());
+                    ps.setString(6, user.getPassword());
+                });
+    }
+
+    // ожидает пользователей после insertUsers: id уже известны, перечитывать их по email не нужно
+    public void insertUserRoles(List<User> users) {
+        List<Object[]> links = new ArrayList<>();
+        for (User user : users) {
+            for (Role role : user.getRoles()) {
+                links.add(new Object[]{user.getId(), role.getId()});
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO user_roles (user_id, role_id) VALUES (?, ?)", links);
+    }
+
+    public int updateUser(User user, Long expectedVersion) {
+        Map<String, Object> columns = new LinkedHashMap<>();
+        columns.put("first_name", user.getFirstName());
+        columns.put("last_name", user.getLastName());
+        columns.put("email", user.getEmail());
+        columns.put("age", user.getAge());
+        if (user.getPassword() != null) {
+            columns.put("password", user.getPassword());
+        }
+        return updateColumns(user.getId(), columns, expectedVersion);
+    }
+
+    // одно условное UPDATE только по переданным колонкам; 0 строк — пользователя нет или версия устарела.
+    // без expectedVersion проверка версии не делается (клиент не прислал If-Match)
+    public int updateColumns(Long id, Map<String, Object> columns, Long expectedVersion) {
+        StringBuilder sql = new StringBuilder("UPDATE users SET ");
+        List<Object> args = new ArrayList<>(columns.size() + 2);
+        for (Map.Entry<String, Object> column : columns.entrySet()) {
+            if (!UPDATABLE_COLUMNS.contains(column.getKey())) {
+                throw new IllegalArgumentException("Column is not updatable: " + column.getKey());
+            }
+            sql.append(column.getKey()).append(" = ?, ");
+            args.add(column.getValue());
+        }
+        sql.append("version = version + 1 WHERE id = ?");
+        args.add(id);
+        if (expectedVersion != null) {
+            sql.append(" AND version = ?");
+            args.add(expectedVersion);
+        }
+        return jdbcTemplate.update(sql.toString(), args.toArray());
+    }
+
+    // пишем только разницу: снятые роли удаляются, новые добавляются, остальные строки user_roles не трогаем
+    public void updateUserRoles(Long userId, Collection<Role> roles) {
+        Set<Long> target = new HashSet<>();
+        roles.forEach(role -> target.add(role.getId()));
+        Set<Long> current = new HashSet<>(
+                jdbcTemplate.queryForList("SELECT role_id FROM user_roles WHERE user_id = ?", Long.class, userId));
+
+        List<Long> removed = new ArrayList<>(current);
+        removed.removeAll(target);
+        List<Object[]> added = new ArrayList<>();
+        for (Long roleId : target) {
+            if (!current.contains(roleId)) {
+                added.add(new Object[]{userId, roleId});
+            }
+        }
+        if (removed.isEmpty() && added.isEmpty()) {
+            return;
+        }
+
+        evictRoles(userId);
+        if (!removed.isEmpty()) {
+            namedJdbcTemplate.update("DELETE FROM user_roles WHERE user_id = :userId AND role_id IN (:roleIds)",
+                    Map.of("userId", userId, "roleIds", removed));
+        }
+        if (!added.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO user_roles (user_id, role_id) VALUES (?, ?)", added);
+        }
+        evictRolesAfterCommit(userId);
+    }
+
+    // Hibernate не видит JDBC-записей в user_roles, поэтому закэшированную коллекцию User.roles снимаем сами:
+    // до записи и ещё раз после коммита (то, что закэшировали, пока транзакция шла, было старым).
+    // Окно не закрыто полностью: чтение, начатое до коммита, может положить старый состав и после второго
+    // снятия — такую запись ограничивает только TTL региона (app.cache.user-roles.ttl-seconds), поэтому он короткий
+    private void evictRolesAfterCommit(Long userId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evictRoles(userId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evictRoles(userId);
+            }
+        });
+    }
+
+    private void evictRoles(Long userId) {
+        sessionFactory.getCache().evictCollectionData(HibernateCacheConfig.USER_ROLES_REGION, userId);
+    }
+
+    // генератор сущности User (pooled): к id_generators ходит раз на 50 id, в отдельной короткой транзакции
+    private void assignIds(List<User> users) {
+        IdentifierGenerator generator = sessionFactory.unwrap(SessionFactoryImplementor.class)
+                .getMetamodel()
+                .entityPersister(User.class)
+                .getIdentifierGenerator();
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            for (User user : users) {
+                user.setId((Long) generator.generate((SharedSessionContractImplementor) session, user));
+            }
+        }
+    }
+}
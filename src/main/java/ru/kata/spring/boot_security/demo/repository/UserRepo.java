@@ -1,15 +1,58 @@
 package ru.kata.spring.boot_security.demo.repository;
 
-import org.springframework.data.repository.CrudRepository;
-import ru.kata.spring.boot_security.demo.entities.Role;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import ru.kata.spring.boot_security.demo.entities.User;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
-public interface UserRepo extends CrudRepository<User, Long> {
+public interface UserRepo extends JpaRepository<User, Long>, UserSearchRepo {
     Optional<User> findById(Long id);
     Optional<User> findByEmail(String email);
+
+    @Query("SELECT u FROM User u LEFT JOIN FETCH u.roles WHERE u.email = :email")
+    Optional<User> findWithRolesByEmail(@Param("email") String email);
     List<User> findAll();
     void deleteById(Long id);
-}
\ No newline at end of file
+
+    // роли подтягиваются тем же запросом, без отдельного select на каждого пользователя
+    @Query("SELECT DISTINCT u FROM User u LEFT JOIN FETCH u.roles ORDER BY u.id")
+    List<User> findAllWithRoles();
+
+    // keyset-пагинация: следующая страница после последнего увиденного id
+    @Query("SELECT u.id AS id, u.firstName AS firstName, u.lastName AS lastName, u.email AS email, u.age AS age, " +
+            "u.version AS version FROM User u WHERE u.id > :after ORDER BY u.id")
+    List<UserSummary> findSummariesAfter(@Param("after") Long after, Pageable pageable);
+
+    @Query("SELECT u.id AS id, u.firstName AS firstName, u.lastName AS lastName, u.email AS email, u.age AS age, " +
+            "u.version AS version FROM User u WHERE u.id = :id")
+    Optional<UserSummary> findSummaryById(@Param("id") Long id);
+
+    @Query("SELECT u.id AS id, u.firstName AS firstName, u.lastName AS lastName, u.email AS email, u.age AS age, " +
+            "u.version AS version FROM User u WHERE u.email = :email")
+    Optional<UserSummary> findSummaryByEmail(@Param("email") String email);
+
+    @Query("SELECT u.id AS userId, r.nameRole AS roleName FROM User u JOIN u.roles r WHERE u.id IN :ids")
+    List<UserRoleName> findRoleNamesByUserIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT u.id AS id, u.version AS version FROM User u WHERE u.id > :after ORDER BY u.id")
+    List<EntityVersion> findVersionsAfter(@Param("after") Long after, Pageable pageable);
+
+    @Query("SELECT u.id AS id, u.version AS version FROM User u WHERE u.id = :id")
+    Optional<EntityVersion> findVersionById(@Param("id") Long id);
+
+    @Query("SELECT u.id AS id, u.version AS version FROM User u WHERE u.email = :email")
+    Optional<EntityVersion> findVersionByEmail(@Param("email") String email);
+
+    // перехэширование при входе: пишем, только если хэш не успели сменить параллельно (например, админ задал новый пароль)
+    @Modifying
+    @Query("UPDATE User u SET u.password = :password, u.version = u.version + 1 " +
+            "WHERE u.email = :email AND u.password = :oldPassword")
+    int updatePasswordByEmail(@Param("email") String email, @Param("oldPassword") String oldPassword,
+                              @Param("password") String password);
+}
@@ -0,0 +1,6 @@
+package ru.kata.spring.boot_security.demo.repository;
+
+public interface UserRoleName {
+    Long getUserId();
+    String getRoleName();
+}
@@ -0,0 +1,12 @@
+package ru.kata.spring.boot_security.demo.repository;
+
+import org.springframework.data.jpa.domain.Specification;
+import ru.kata.spring.boot_security.demo.entities.User;
+
+import java.util.List;
+
+public interface UserSearchRepo {
+
+    // keyset-страница проекций: after — значения ключей сортировки последней строки предыдущей страницы
+    List<UserSummary> search(Specification<User> filter, UserSort sort, boolean descending, List<Object> after, int limit);
+}
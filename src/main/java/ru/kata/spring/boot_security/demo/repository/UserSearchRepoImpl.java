@@ -0,0 +1,142 @@
+package ru.kata.spring.boot_security.demo.repository;
+
+import org.springframework.data.jpa.domain.Specification;
+import ru.kata.spring.boot_security.demo.entities.User;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.List;
+
+// Criteria-запрос вместо JpaSpecificationExecutor.findAll(spec, pageable): без count(*) и без загрузки сущностей
+public class UserSearchRepoImpl implements UserSearchRepo {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<UserSummary> search(Specification<User> filter, UserSort sort, boolean descending,
+                                    List<Object> after, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<User> user = query.from(User.class);
+
+        query.multiselect(user.get("id"), user.get("firstName"), user.get("lastName"), user.get("email"),
+                user.get("age"), user.get("version"));
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (filter != null) {
+            Predicate predicate = filter.toPredicate(user, query, cb);
+            if (predicate != null) {
+                predicates.add(predicate);
+            }
+        }
+        if (after != null) {
+            predicates.add(keysetPredicate(cb, user, sort.getKeys(), after, descending));
+        }
+        query.where(predicates.toArray(new Predicate[0]));
+
+        List<Order> orders = new ArrayList<>();
+        for (String key : sort.getKeys()) {
+            orders.add(descending ? cb.desc(user.get(key)) : cb.asc(user.get(key)));
+        }
+        query.orderBy(orders);
+
+        List<UserSummary> summaries = new ArrayList<>();
+        for (Tuple row : entityManager.createQuery(query).setMaxResults(limit).getResultList()) {
+            summaries.add(new Row(row.get(0, Long.class), row.get(1, String.class), row.get(2, String.class),
+                    row.get(3, String.class), row.get(4, Integer.class), row.get(5, Long.class)));
+        }
+        return summaries;
+    }
+
+    // (k1, k2, ..., id) > (v1, v2, ..., id) в развёрнутом виде; отдельное k1 >= v1 даёт MySQL диапазон по индексу.
+    // NULL считается меньше любого значения — так его сортируют и MySQL, и H2 (первым по возрастанию, последним по убыванию)
+    private static Predicate keysetPredicate(CriteriaBuilder cb, Root<User> user, List<String> keys,
+                                             List<Object> after, boolean descending) {
+        List<Predicate> alternatives = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i++) {
+            List<Predicate> conjunction = new ArrayList<>();
+            for (int j = 0; j < i; j++) {
+                Path<Object> path = user.get(keys.get(j));
+                conjunction.add(after.get(j) == null ? cb.isNull(path) : cb.equal(path, after.get(j)));
+            }
+            conjunction.add(following(cb, user.get(keys.get(i)), (Comparable<?>) after.get(i), descending, false));
+            alternatives.add(cb.and(conjunction.toArray(new Predicate[0])));
+        }
+
+        Predicate range = following(cb, user.get(keys.get(0)), (Comparable<?>) after.get(0), descending, true);
+        return cb.and(range, cb.or(alternatives.toArray(new Predicate[0])));
+    }
+
+    // строки после value в порядке сортировки (inclusive — вместе с равными)
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Predicate following(CriteriaBuilder cb, Path<Comparable> path, Comparable value,
+                                       boolean descending, boolean inclusive) {
+        if (!descending) {
+            if (value == null) {
+                return inclusive ? cb.conjunction() : cb.isNotNull(path);
+            }
+            return inclusive ? cb.greaterThanOrEqualTo(path, value) : cb.greaterThan(path, value);
+        }
+        if (value == null) {
+            return inclusive ? cb.isNull(path) : cb.disjunction();
+        }
+        return cb.or(inclusive ? cb.lessThanOrEqualTo(path, value) : cb.lessThan(path, value), cb.isNull(path));
+    }
+
+    private static final class Row implements UserSummary {
+        private final Long id;
+        private final String firstName;
+        private final String lastName;
+        private final String email;
+        private final Integer age;
+        private final Long version;
+
+        private Row(Long id, String firstName, String lastName, String email, Integer age, Long version) {
+            this.id = id;
+            this.firstName = firstName;
+            this.lastName = lastName;
+            this.email = email;
+            this.age = age;
+            this.version = version;
+        }
+
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public String getFirstName() {
+            return firstName;
+        }
+
+        @Override
+        public String getLastName() {
+            return lastName;
+        }
+
+        @Override
+        public String getEmail() {
+            return email;
+        }
+
+        @Override
+        public Integer getAge() {
+            return age;
+        }
+
+        @Override
+        public Long getVersion() {
+            return version;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package ru.kata.spring.boot_security.demo.repository;
+
+import java.util.List;
+import java.util.Locale;
+
+// допустимые сортировки поиска; ключи совпадают с колонками индексов, id в конце делает порядок однозначным
+public enum UserSort {
+    ID("id"),
+    LAST_NAME("lastName", "firstName", "id"),
+    EMAIL("email", "id"),
+    AGE("age", "id");
+
+    private final List<String> keys;
+
+    UserSort(String... keys) {
+        this.keys = List.of(keys);
+    }
+
+    public List<String> getKeys() {
+        return keys;
+    }
+
+    public static UserSort fromParameter(String sort) {
+        if (sort == null || sort.isBlank()) {
+            return ID;
+        }
+        switch (sort.trim().toLowerCase(Locale.ROOT)) {
+            case "id":
+                return ID;
+            case "lastname":
+                return LAST_NAME;
+            case "email":
+                return EMAIL;
+            case "age":
+                return AGE;
+            default:
+                throw new IllegalArgumentException("Unsupported sort: " + sort);
+        }
+    }
+}
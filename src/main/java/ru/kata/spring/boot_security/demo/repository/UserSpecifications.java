@@ -0,0 +1,52 @@
+package ru.kata.spring.boot_security.demo.repository;
+
+import org.springframework.data.jpa.domain.Specification;
+import ru.kata.spring.boot_security.demo.entities.Role;
+import ru.kata.spring.boot_security.demo.entities.User;
+
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Subquery;
+
+// фильтры поиска пользователей; префиксный LIKE без ведущего % использует индекс
+public final class UserSpecifications {
+
+    private UserSpecifications() {
+    }
+
+    public static Specification<User> firstNameStartsWith(String prefix) {
+        return (root, query, cb) -> cb.like(root.get("firstName"), likePrefix(prefix), '\\');
+    }
+
+    public static Specification<User> lastNameStartsWith(String prefix) {
+        return (root, query, cb) -> cb.like(root.get("lastName"), likePrefix(prefix), '\\');
+    }
+
+    public static Specification<User> emailStartsWith(String prefix) {
+        return (root, query, cb) -> cb.like(root.get("email"), likePrefix(prefix), '\\');
+    }
+
+    public static Specification<User> ageAtLeast(int minAge) {
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("age"), minAge);
+    }
+
+    public static Specification<User> ageAtMost(int maxAge) {
+        return (root, query, cb) -> cb.lessThanOrEqualTo(root.get("age"), maxAge);
+    }
+
+    // EXISTS по user_roles(role_id, user_id), а не join: строки пользователей не дублируются
+    public static Specification<User> hasRole(Long roleId) {
+        return (root, query, cb) -> {
+            Subquery<Long> subquery = query.subquery(Long.class);
+            Root<User> member = subquery.from(User.class);
+            Join<User, Role> role = member.join("roles");
+            subquery.select(member.get("id"))
+                    .where(cb.equal(member.get("id"), root.get("id")), cb.equal(role.get("id"), roleId));
+            return cb.exists(subquery);
+        };
+    }
+
+    private static String likePrefix(String prefix) {
+        return prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+}
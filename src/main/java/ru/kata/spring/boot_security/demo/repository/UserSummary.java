@@ -0,0 +1,11 @@
+package ru.kata.spring.boot_security.demo.repository;
+
+// проекция пользователя для чтения: без пароля и без загрузки сущности в контекст Hibernate
+public interface UserSummary {
+    Long getId();
+    String getFirstName();
+    String getLastName();
+    String getEmail();
+    Integer getAge();
+    Long getVersion();
+}
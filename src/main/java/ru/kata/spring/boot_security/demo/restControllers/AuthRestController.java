@@ -1,14 +1,25 @@
 package ru.kata.spring.boot_security.demo.restControllers;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import ru.kata.spring.boot_security.demo.dao.UserDao;
+import ru.kata.spring.boot_security.demo.services.AccountDetails;
+import ru.kata.spring.boot_security.demo.services.AuthTokenService;
+import ru.kata.spring.boot_security.demo.services.LoginThrottle;
+import ru.kata.spring.boot_security.demo.services.PrincipalCache;
 import ru.kata.spring.boot_security.demo.services.UserService;
 
+import javax.servlet.http.HttpServletRequest;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -17,9 +28,51 @@ import java.util.Map;
 public class AuthRestController {
 
     private final UserService userService;
+    private final PrincipalCache principalCache;
+    private final AuthTokenService authTokenService;
+    private final AuthenticationManager authenticationManager;
+    private final LoginThrottle loginThrottle;
 
-    public AuthRestController(UserService userService) {
+    public AuthRestController(UserService userService, PrincipalCache principalCache,
+                              AuthTokenService authTokenService, AuthenticationManager authenticationManager,
+                              LoginThrottle loginThrottle) {
         this.userService = userService;
+        this.principalCache = principalCache;
+        this.authTokenService = authTokenService;
+        this.authenticationManager = authenticationManager;
+        this.loginThrottle = loginThrottle;
+    }
+
+    // обмен email/пароля на короткоживущий токен для заголовка Authorization: Bearer
+    @PostMapping("/token")
+    public ResponseEntity<?> issueToken(@RequestBody Map<String, String> credentials, HttpServletRequest request) {
+        if (!authTokenService.isEnabled()) {
+            return ResponseEntity.notFound().build();
+        }
+        String email = credentials.get("email");
+        // тот же лимит, что и у формы входа: иначе перебор просто переедет сюда
+        long retryAfter = loginThrottle.tryAcquire(email, request.getRemoteAddr());
+        if (retryAfter > 0) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter))
+                    .body("Too many login attempts");
+        }
+        try {
+            Authentication authentication = authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(
+                    email, credentials.get("password")));
+            AccountDetails account = (AccountDetails) authentication.getPrincipal();
+            loginThrottle.recordSuccess(email);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("access_token", authTokenService.issue(account));
+            response.put("token_type", "Bearer");
+            response.put("expires_in", authTokenService.getTtlSeconds());
+            return ResponseEntity.ok(response);
+        } catch (AuthenticationException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid email or password");
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error issuing token");
+        }
     }
 
     @GetMapping("/userinfo")
@@ -59,4 +112,14 @@ public class AuthRestController {
             return ResponseEntity.ok(response);
         }
     }
+
+    @GetMapping("/cache-stats")
+    public ResponseEntity<?> getPrincipalCacheStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", principalCache.getSize());
+        stats.put("hits", principalCache.getHits());
+        stats.put("misses", principalCache.getMisses());
+        stats.put("evictions", principalCache.getEvictions());
+        return ResponseEntity.ok(stats);
+    }
 }
@@ -0,0 +1,64 @@
+package ru.kata.spring.boot_security.demo.restControllers;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// условный GET: тег считается по версиям строк до загрузки данных, при совпадении отвечаем 304 без тела
+final class ETags {
+
+    // тег одной сущности: "<prefix>-<id>-<version>[-...]"
+    private static final Pattern ENTITY_TAG = Pattern.compile("\"([a-z]+)-(\\d+)-(\\d+)(-[^\"]*)?\"");
+
+    // версия, которая гарантированно не совпадёт ни с одной строкой
+    static final long NO_VERSION = -1L;
+
+    // браузер может хранить ответ, но обязан каждый раз сверяться с сервером
+    static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
+    private ETags() {
+    }
+
+    static String quote(String tag) {
+        return tag != null ? "\"" + tag + "\"" : null;
+    }
+
+    // для If-None-Match сравнение слабое: префикс W/ не учитывается
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals("*") || value.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static <T> ResponseEntity<T> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(REVALIDATE).build();
+    }
+
+    // ожидаемая версия из If-Match (сравнение сильное, W/ не подходит); null — условия нет.
+    // чужой или испорченный тег не совпадёт ни с одной версией и приведёт к 412
+    static Long expectedVersion(String ifMatch, String prefix, Long id) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        for (String candidate : ifMatch.split(",")) {
+            Matcher matcher = ENTITY_TAG.matcher(candidate.trim());
+            if (matcher.matches() && matcher.group(1).equals(prefix) && matcher.group(2).equals(String.valueOf(id))) {
+                return Long.valueOf(matcher.group(3));
+            }
+        }
+        return NO_VERSION;
+    }
+}
@@ -1,5 +1,9 @@
 package ru.kata.spring.boot_security.demo.restControllers;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -13,6 +17,8 @@ import java.util.List;
 @RequestMapping("/api/roles")
 public class RoleRestController {
 
+    private static final Logger log = LoggerFactory.getLogger(RoleRestController.class);
+
     private final RoleService roleService;
 
     public RoleRestController(RoleService roleService) {
@@ -20,34 +26,38 @@ public class RoleRestController {
     }
 
     @GetMapping
-    public ResponseEntity<List<Role>> getAllRoles() {
+    public ResponseEntity<List<Role>> getAllRoles(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
-            System.out.println("=== GET ALL ROLES ===");
+            String etag = ETags.quote(roleService.getRolesTag());
+            if (ETags.matches(ifNoneMatch, etag)) {
+                return ETags.notModified(etag);
+            }
             List<Role> roles = roleService.allRoles();
-            System.out.println("Found " + roles.size() + " roles");
-            return ResponseEntity.ok(roles);
+            log.debug("Get all roles count={}", roles.size());
+            return ResponseEntity.ok().eTag(etag).cacheControl(ETags.REVALIDATE).body(roles);
         } catch (Exception e) {
-            System.out.println("Error getting roles: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error getting roles", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Role> getRoleById(@PathVariable Long id) {
+    public ResponseEntity<Role> getRoleById(@PathVariable Long id, @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
-            System.out.println("=== GET ROLE BY ID ===");
-            System.out.println("Role ID: " + id);
+            String etag = ETags.quote(roleService.getRoleTag(id));
+            if (ETags.matches(ifNoneMatch, etag)) {
+                return ETags.notModified(etag);
+            }
             Role role = roleService.getRoleById(id);
             if (role != null) {
-                System.out.println("Found role: " + role.getNameRole());
-                return ResponseEntity.ok(role);
+                log.debug("Get role by id id={} role={}", id, role.getNameRole());
+                return ResponseEntity.ok().eTag(etag).cacheControl(ETags.REVALIDATE).body(role);
             } else {
-                System.out.println("Role not found with ID: " + id);
+                log.debug("Role not found id={}", id);
                 return ResponseEntity.notFound().build();
             }
         } catch (Exception e) {
-            System.out.println("Error getting role by ID: " + e.getMessage());
+            log.error("Error getting role by id id={}", id, e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
@@ -55,21 +65,15 @@ public class RoleRestController {
     @GetMapping("/name/{name}")
     public ResponseEntity<Role> getRoleByName(@PathVariable String name) {
         try {
-            System.out.println("=== GET ROLE BY NAME ===");
-            System.out.println("Original role name: '" + name + "'");
-
-
             String cleanedName = name != null ? name.trim() : "";
-            System.out.println("Cleaned role name: '" + cleanedName + "'");
-
             Role role = roleService.getRoleByName(cleanedName);
-            System.out.println("Found role: " + role.getNameRole());
+            log.debug("Get role by name name={} role={}", cleanedName, role.getNameRole());
             return ResponseEntity.ok(role);
         } catch (IllegalStateException e) {
-            System.out.println("Role not found with name: '" + name + "'");
+            log.debug("Role not found name={}", name);
             return ResponseEntity.notFound().build();
         } catch (Exception e) {
-            System.out.println("Error getting role by name: " + e.getMessage());
+            log.error("Error getting role by name name={}", name, e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
@@ -77,27 +81,35 @@ public class RoleRestController {
     @PostMapping
     public ResponseEntity<?> createRole(@RequestBody Role role) {
         try {
-            System.out.println("=== CREATE ROLE ===");
-            System.out.println("Role name: " + role.getNameRole());
             roleService.addRole(role);
+            log.info("Role created role={}", role.getNameRole());
             return ResponseEntity.status(HttpStatus.CREATED).body("Role created successfully");
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
         } catch (Exception e) {
-            System.out.println("Error creating role: " + e.getMessage());
+            log.error("Error creating role role={}", role.getNameRole(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error creating role");
         }
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<?> updateRole(@PathVariable Long id, @RequestBody Role role) {
+    public ResponseEntity<?> updateRole(@PathVariable Long id, @RequestBody Role role, @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
-            System.out.println("=== UPDATE ROLE ===");
-            System.out.println("Role ID: " + id);
-            System.out.println("New role name: " + role.getNameRole());
             role.setId(id);
-            roleService.updateRole(role);
+            roleService.updateRole(role, ETags.expectedVersion(ifMatch, "role", id));
+            log.info("Role updated id={} role={}", id, role.getNameRole());
             return ResponseEntity.ok("Role updated successfully");
+        } catch (OptimisticLockingFailureException e) {
+            log.debug("Role update rejected, stale version id={}", id);
+            return ResponseEntity.status(ifMatch != null ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT)
+                    .body("Role was modified by another request");
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IllegalStateException e) {
+            log.debug("Role not found id={}", id);
+            return ResponseEntity.notFound().build();
         } catch (Exception e) {
-            System.out.println("Error updating role: " + e.getMessage());
+            log.error("Error updating role id={}", id, e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error updating role");
         }
     }
@@ -105,13 +117,12 @@ public class RoleRestController {
     @DeleteMapping("/{id}")
     public ResponseEntity<?> deleteRole(@PathVariable Long id) {
         try {
-            System.out.println("=== DELETE ROLE ===");
-            System.out.println("Role ID to delete: " + id);
             roleService.deleteRole(id);
+            log.info("Role deleted id={}", id);
             return ResponseEntity.ok("Role deleted successfully");
         } catch (Exception e) {
-            System.out.println("Error deleting role: " + e.getMessage());
+            log.error("Error deleting role id={}", id, e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error deleting role");
         }
     }
-}
\ No newline at end of file
+}
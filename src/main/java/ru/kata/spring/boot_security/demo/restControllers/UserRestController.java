@@ -1,12 +1,24 @@
 package ru.kata.spring.boot_security.demo.restControllers;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ru.kata.spring.boot_security.demo.dao.UserDao;
-import ru.kata.spring.boot_security.demo.entities.User;
+import ru.kata.spring.boot_security.demo.dao.UserPage;
+import ru.kata.spring.boot_security.demo.dao.UserSearchPage;
+import ru.kata.spring.boot_security.demo.dao.UserSearchQuery;
+import ru.kata.spring.boot_security.demo.dao.UserImportResult;
+import ru.kata.spring.boot_security.demo.services.PasswordHashingOverloadedException;
+import ru.kata.spring.boot_security.demo.services.UserImportService;
 import ru.kata.spring.boot_security.demo.services.UserService;
 
+import java.io.InputStream;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -14,28 +26,56 @@ import java.util.Map;
 @RequestMapping("/api/users")
 public class UserRestController {
 
+    private static final Logger log = LoggerFactory.getLogger(UserRestController.class);
+
     private final UserService userService;
+    private final UserImportService userImportService;
 
-    public UserRestController(UserService userService) {
+    public UserRestController(UserService userService, UserImportService userImportService) {
         this.userService = userService;
+        this.userImportService = userImportService;
     }
 
     @GetMapping
-    public ResponseEntity<List<UserDao>> getAllUsers() {
+    public ResponseEntity<UserPage> getAllUsers(@RequestParam(required = false) Long after,
+                                                @RequestParam(required = false) Integer limit,
+                                                @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
-            List<UserDao> users = userService.getAllUsersAsDao();
-            return ResponseEntity.ok(users);
+            String etag = ETags.quote(userService.getUsersPageTag(after, limit));
+            if (ETags.matches(ifNoneMatch, etag)) {
+                return ETags.notModified(etag);
+            }
+            UserPage page = userService.getUsersPage(after, limit);
+            return ResponseEntity.ok().eTag(etag).cacheControl(ETags.REVALIDATE).body(page);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
+    // /api/users/search?lastName=Iv&role=admin&minAge=18&sort=lastName&direction=asc&after=<nextCursor>&limit=50
+    @GetMapping("/search")
+    public ResponseEntity<?> searchUsers(UserSearchQuery query) {
+        try {
+            UserSearchPage page = userService.searchUsers(query);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            log.error("Error searching users", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error searching users");
+        }
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<UserDao> getUserById(@PathVariable Long id) {
+    public ResponseEntity<UserDao> getUserById(@PathVariable Long id, @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
+            String etag = ETags.quote(userService.getUserTag(id));
+            if (ETags.matches(ifNoneMatch, etag)) {
+                return ETags.notModified(etag);
+            }
             UserDao user = userService.getUserDaoById(id);
             if (user != null) {
-                return ResponseEntity.ok(user);
+                return ResponseEntity.ok().eTag(etag).cacheControl(ETags.REVALIDATE).body(user);
             } else {
                 return ResponseEntity.notFound().build();
             }
@@ -45,21 +85,28 @@ public class UserRestController {
     }
 
     @GetMapping("/current")
-    public ResponseEntity<UserDao> getCurrentUser() {
+    public ResponseEntity<UserDao> getCurrentUser(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
+            String etag = ETags.quote(userService.getCurrentUserTag());
+            if (ETags.matches(ifNoneMatch, etag)) {
+                return ETags.notModified(etag);
+            }
             UserDao currentUser = userService.getCurrentUserAsDao();
-            return ResponseEntity.ok(currentUser);
+            return ResponseEntity.ok().eTag(etag).cacheControl(ETags.REVALIDATE).body(currentUser);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
     }
 
     @GetMapping("/email/{email}")
-    public ResponseEntity<UserDao> getUserByEmail(@PathVariable String email) {
+    public ResponseEntity<UserDao> getUserByEmail(@PathVariable String email, @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
-            User user = userService.getUserByEmail(email);
-            UserDao userDao = new UserDao(user);
-            return ResponseEntity.ok(userDao);
+            String etag = ETags.quote(userService.getUserTagByEmail(email));
+            if (ETags.matches(ifNoneMatch, etag)) {
+                return ETags.notModified(etag);
+            }
+            UserDao userDao = userService.getUserDaoByEmail(email);
+            return ResponseEntity.ok().eTag(etag).cacheControl(ETags.REVALIDATE).body(userDao);
         } catch (Exception e) {
             return ResponseEntity.notFound().build();
         }
@@ -74,6 +121,8 @@ public class UserRestController {
             } else {
                 return ResponseEntity.status(HttpStatus.CONFLICT).body("User with this email already exists");
             }
+        } catch (PasswordHashingOverloadedException e) {
+            return serviceUnavailable(e);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         } catch (Exception e) {
@@ -81,16 +130,38 @@ public class UserRestController {
         }
     }
 
+    @PostMapping(value = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, "application/x-ndjson"})
+    public ResponseEntity<?> importUsers(InputStream body) {
+        try {
+            List<UserImportResult> results = userImportService.importUsers(body);
+            long created = results.stream()
+                    .filter(result -> UserImportResult.CREATED.equals(result.getStatus()))
+                    .count();
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("created", created);
+            response.put("rejected", results.size() - created);
+            response.put("results", results);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error importing users");
+        }
+    }
+
     @PutMapping("/{id}")
-    public ResponseEntity<?> updateUser(@PathVariable Long id, @RequestBody UserDao userDao) {
+    public ResponseEntity<?> updateUser(@PathVariable Long id, @RequestBody UserDao userDao, @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
             userDao.setId(id);
-            boolean updated = userService.updateUser(userDao);
+            boolean updated = userService.updateUser(userDao, ETags.expectedVersion(ifMatch, "user", id));
             if (updated) {
                 return ResponseEntity.ok("User updated successfully");
             } else {
                 return ResponseEntity.status(HttpStatus.CONFLICT).body("Email already exists or user not found");
             }
+        } catch (OptimisticLockingFailureException e) {
+            return versionConflict(ifMatch);
+        } catch (PasswordHashingOverloadedException e) {
+            return serviceUnavailable(e);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         } catch (Exception e) {
@@ -110,67 +181,47 @@ public class UserRestController {
 
 
 
-    @PatchMapping("/{id}")
-    public ResponseEntity<?> partialUpdateUser(@PathVariable Long id, @RequestBody Map<String, Object> updates) {
+    // JSON Merge Patch: присланные поля заменяются, отсутствующие не трогаются
+    @PatchMapping(value = "/{id}", consumes = {MediaType.APPLICATION_JSON_VALUE, "application/merge-patch+json"})
+    public ResponseEntity<?> partialUpdateUser(@PathVariable Long id, @RequestBody Map<String, Object> updates,
+                                               @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
-            System.out.println("=== PATCH USER ===");
-            System.out.println("User ID: " + id);
-            System.out.println("Updates: " + updates);
-
-            User existingUser = userService.getUserById(id);
-            if (existingUser == null) {
-                System.out.println("User not found with ID: " + id);
-                return ResponseEntity.notFound().build();
-            }
-
-
-            UserDao existingUserDao = new UserDao(existingUser);
-
-
-            if (updates.containsKey("firstName")) {
-                existingUserDao.setFirstName((String) updates.get("firstName"));
-            }
-            if (updates.containsKey("lastName")) {
-                existingUserDao.setLastName((String) updates.get("lastName"));
-            }
-            if (updates.containsKey("email")) {
-                existingUserDao.setEmail((String) updates.get("email"));
-            }
-            if (updates.containsKey("age")) {
-                existingUserDao.setAge((Integer) updates.get("age"));
-            }
-            if (updates.containsKey("roles")) {
-
-                Object rolesObj = updates.get("roles");
-                if (rolesObj instanceof List) {
-                    List<String> rolesList = (List<String>) rolesObj;
-                    String[] rolesArray = rolesList.toArray(new String[0]);
-                    existingUserDao.setRoles(rolesArray);
-                }
-            }
-            if (updates.containsKey("password")) {
-                String password = (String) updates.get("password");
-                if (password != null && !password.trim().isEmpty()) {
-                    existingUserDao.setPassword(password);
-                }
-            }
-
-            existingUserDao.setId(id);
-            System.out.println("Updated UserDao: " + existingUserDao);
-
-            boolean updated = userService.updateUser(existingUserDao);
+            // значения не логируем: в них может быть пароль
+            log.debug("Patch user id={} fields={}", id, updates.keySet());
 
+            boolean updated = userService.patchUser(id, updates, ETags.expectedVersion(ifMatch, "user", id));
             if (updated) {
-                System.out.println("User updated successfully via PATCH");
                 return ResponseEntity.ok("User updated successfully");
             } else {
-                System.out.println("Failed to update user via PATCH");
-                return ResponseEntity.status(HttpStatus.CONFLICT).body("Email already exists or update failed");
+                log.warn("User patch rejected id={}", id);
+                return ResponseEntity.status(HttpStatus.CONFLICT).body("Email already exists");
             }
+        } catch (OptimisticLockingFailureException e) {
+            return versionConflict(ifMatch);
+        } catch (PasswordHashingOverloadedException e) {
+            return serviceUnavailable(e);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IllegalStateException e) {
+            log.debug("Patch user not found id={}", id);
+            return ResponseEntity.notFound().build();
         } catch (Exception e) {
-            System.out.println("EXCEPTION in partialUpdateUser: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error patching user id={}", id, e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error updating user: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    // 412 — не выполнилось условие клиента; без If-Match это обычный конфликт параллельных изменений
+    private ResponseEntity<?> versionConflict(String ifMatch) {
+        if (ifMatch != null) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body("User was modified by another request");
+        }
+        return ResponseEntity.status(HttpStatus.CONFLICT).body("User was modified concurrently, retry the request");
+    }
+
+    private ResponseEntity<?> serviceUnavailable(PasswordHashingOverloadedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(e.getMessage());
+    }
+}
@@ -1,32 +1,68 @@
 package ru.kata.spring.boot_security.demo.services;
 
 import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import ru.kata.spring.boot_security.demo.entities.Role;
 import ru.kata.spring.boot_security.demo.entities.User;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
 
-public class AccountDetails implements UserDetails {
+// неизменяемый снимок пользователя для Spring Security, не связанный с сессией Hibernate
+public final class AccountDetails implements UserDetails {
 
-    private User user;
+    private final Long id;
+    private final String email;
+    private final String password;
+    private final List<GrantedAuthority> authorities;
 
     public AccountDetails(User user) {
-        this.user = user;
+        this.id = user.getId();
+        this.email = user.getEmail();
+        this.password = user.getPassword();
+        this.authorities = user.getRoles().stream()
+                .map(Role::getNameRole)
+                .map(SimpleGrantedAuthority::new)
+                .collect(Collectors.toUnmodifiableList());
+    }
+
+    private AccountDetails(Long id, String email, String password, List<GrantedAuthority> authorities) {
+        this.id = id;
+        this.email = email;
+        this.password = password;
+        this.authorities = authorities;
+    }
+
+    // восстановленный из токена или сессии: пароля нет, аутентификация уже состоялась
+    public static AccountDetails of(Long id, String email, List<String> authorities) {
+        return new AccountDetails(id, email, null, authorities.stream()
+                .map(SimpleGrantedAuthority::new)
+                .collect(Collectors.toUnmodifiableList()));
+    }
+
+    public AccountDetails withPassword(String password) {
+        return new AccountDetails(id, email, password, authorities);
+    }
+
+    public Long getId() {
+        return id;
     }
 
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        return user.getAuthorities();
+        return authorities;
     }
 
     @Override
     public String getPassword() {
-        return this.user.getPassword();
+        return this.password;
     }
 
     @Override
     public String getUsername() {
-        return this.user.getEmail();
+        return this.email;
     }
 
     @Override
@@ -48,8 +84,4 @@ public class AccountDetails implements UserDetails {
     public boolean isEnabled() {
         return true;
     }
-
-    public User getUser() {
-        return this.user;
-    }
 }
@@ -0,0 +1,126 @@
+package ru.kata.spring.boot_security.demo.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+// короткоживущие токены stateless-режима REST API: JWT (HS256) с id, email и authorities.
+// Проверка — только подпись и срок, без БД и сессии; смена ролей вступает в силу с истечением токена
+@Component
+public class AuthTokenService {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int MIN_SECRET_BYTES = 32;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+    private static final String HEADER = ENCODER.encodeToString(
+            "{\"alg\":\"HS256\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.UTF_8));
+
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final long ttlSeconds;
+    private final SecretKeySpec key;
+
+    public AuthTokenService(ObjectMapper objectMapper,
+                            @Value("${app.auth-token.enabled:false}") boolean enabled,
+                            @Value("${app.auth-token.secret:}") String secret,
+                            @Value("${app.auth-token.ttl-seconds:900}") long ttlSeconds) {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.ttlSeconds = ttlSeconds;
+        this.key = new SecretKeySpec(secretBytes(secret, enabled), ALGORITHM);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getTtlSeconds() {
+        return ttlSeconds;
+    }
+
+    public String issue(AccountDetails account) {
+        long now = System.currentTimeMillis() / 1000;
+        ObjectNode claims = objectMapper.createObjectNode();
+        claims.put("sub", String.valueOf(account.getId()));
+        claims.put("email", account.getUsername());
+        claims.putPOJO("auth", account.getAuthorities().stream().map(GrantedAuthority::getAuthority).toArray());
+        claims.put("iat", now);
+        claims.put("exp", now + ttlSeconds);
+
+        try {
+            String payload = ENCODER.encodeToString(objectMapper.writeValueAsBytes(claims));
+            String signingInput = HEADER + "." + payload;
+            return signingInput + "." + ENCODER.encodeToString(sign(signingInput));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize token claims", e);
+        }
+    }
+
+    // null, если токен подделан, испорчен или истёк
+    public AccountDetails verify(String token) {
+        String[] parts = token.split("\\.", -1);
+        // заголовок сравнивается целиком: никаких alg=none и чужих алгоритмов
+        if (parts.length != 3 || !HEADER.equals(parts[0])) {
+            return null;
+        }
+        try {
+            byte[] signature = DECODER.decode(parts[2]);
+            if (!MessageDigest.isEqual(sign(parts[0] + "." + parts[1]), signature)) {
+                return null;
+            }
+            JsonNode claims = objectMapper.readTree(DECODER.decode(parts[1]));
+            if (claims.path("exp").asLong(0) <= System.currentTimeMillis() / 1000) {
+                return null;
+            }
+            List<String> authorities = new ArrayList<>();
+            claims.path("auth").forEach(authority -> authorities.add(authority.asText()));
+            return AccountDetails.of(Long.valueOf(claims.path("sub").asText()),
+                    claims.path("email").asText(), authorities);
+        } catch (IllegalArgumentException | IOException e) {
+            return null;
+        }
+    }
+
+    private byte[] sign(String signingInput) {
+        try {
+            // Mac не потокобезопасен, экземпляр на вызов
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(signingInput.getBytes(StandardCharsets.US_ASCII));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 is not available", e);
+        }
+    }
+
+    private static byte[] secretBytes(String secret, boolean enabled) {
+        byte[] bytes = secret.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length >= MIN_SECRET_BYTES) {
+            return bytes;
+        }
+        if (enabled) {
+            // случайный ключ процесса означал бы 401 на других узлах и после рестарта — лучше не стартовать
+            throw new IllegalStateException("app.auth-token.enabled=true requires AUTH_TOKEN_SECRET (app.auth-token.secret) "
+                    + "of at least " + MIN_SECRET_BYTES + " bytes, shared by all nodes");
+        }
+        // режим выключен: ключ нужен только чтобы сервис собрался, токены им никто не подписывает
+        byte[] random = new byte[MIN_SECRET_BYTES];
+        new SecureRandom().nextBytes(random);
+        return random;
+    }
+}
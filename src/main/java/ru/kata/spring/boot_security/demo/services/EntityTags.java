@@ -0,0 +1,45 @@
+package ru.kata.spring.boot_security.demo.services;
+
+import org.springframework.util.DigestUtils;
+import ru.kata.spring.boot_security.demo.repository.EntityVersion;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+// строковые значения ETag из версий строк; кавычки добавляет контроллер
+final class EntityTags {
+
+    private EntityTags() {
+    }
+
+    // версия из уже загруженной сущности, без отдельного запроса
+    static EntityVersion version(Long id, long version) {
+        return new EntityVersion() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public Long getVersion() {
+                return version;
+            }
+        };
+    }
+
+    static String single(String prefix, EntityVersion version, String dependsOn) {
+        return prefix + "-" + version.getId() + "-" + version.getVersion() + (dependsOn != null ? "-" + dependsOn : "");
+    }
+
+    // коллекция: хэш от пар id:version, так что добавление, удаление и изменение любой строки меняют тег
+    static String collection(String prefix, List<EntityVersion> versions, String... dependsOn) {
+        StringBuilder state = new StringBuilder();
+        for (String tag : dependsOn) {
+            state.append(tag).append('|');
+        }
+        for (EntityVersion version : versions) {
+            state.append(version.getId()).append(':').append(version.getVersion()).append('|');
+        }
+        return prefix + "-" + DigestUtils.md5DigestAsHex(state.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,139 @@
+package ru.kata.spring.boot_security.demo.services;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// ограничение попыток входа по email и по адресу клиента до загрузки пользователя и BCrypt.
+// Успешный вход возвращает попытку только по email: возврат по адресу позволил бы чередовать
+// вход в свою учётку с подбором чужих паролей и не упираться в лимит адреса
+@Component
+public class LoginThrottle {
+
+    // длиннее адреса почты не бывает; длинные строки не должны раздувать память ключей
+    private static final int MAX_KEY_LENGTH = 254;
+
+    private final boolean enabled;
+    private final Buckets emails;
+    private final Buckets addresses;
+
+    public LoginThrottle(@Value("${app.security.login-throttle.enabled:true}") boolean enabled,
+                         @Value("${app.security.login-throttle.email.burst:5}") int emailBurst,
+                         @Value("${app.security.login-throttle.email.per-minute:5}") int emailPerMinute,
+                         @Value("${app.security.login-throttle.ip.burst:20}") int ipBurst,
+                         @Value("${app.security.login-throttle.ip.per-minute:60}") int ipPerMinute,
+                         @Value("${app.security.login-throttle.max-keys:100000}") int maxKeys,
+                         MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.emails = new Buckets("email", emailBurst, emailPerMinute, maxKeys, meterRegistry);
+        this.addresses = new Buckets("ip", ipBurst, ipPerMinute, maxKeys, meterRegistry);
+    }
+
+    // 0 — попытку можно проверять, иначе через сколько секунд повторить
+    public long tryAcquire(String email, String address) {
+        if (!enabled) {
+            return 0;
+        }
+        long wait = addresses.tryAcquire(key(address));
+        if (wait == 0 && email != null && !email.isBlank()) {
+            wait = emails.tryAcquire(key(email));
+        }
+        return wait == 0 ? 0 : Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait + TimeUnit.SECONDS.toNanos(1) - 1));
+    }
+
+    public void recordSuccess(String email) {
+        if (enabled && email != null && !email.isBlank()) {
+            emails.refund(key(email));
+        }
+    }
+
+    private static String key(String value) {
+        String key = value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+        return key.length() > MAX_KEY_LENGTH ? key.substring(0, MAX_KEY_LENGTH) : key;
+    }
+
+    // GCRA: на ключ одно число — момент, когда ведро снова станет полным. Попытка проходит, если после
+    // неё до этого момента не больше burst интервалов; обновление — CAS, без блокировок
+    private static final class Buckets {
+
+        private static final long SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+        private final Map<String, AtomicLong> fullAt = new ConcurrentHashMap<>();
+        private final long intervalNanos;
+        private final long capacityNanos;
+        private final int maxKeys;
+        private final AtomicLong lastSweep = new AtomicLong(System.nanoTime() - SWEEP_INTERVAL_NANOS);
+
+        private final LongAdder throttled = new LongAdder();
+        private final LongAdder overflows = new LongAdder();
+
+        private Buckets(String limit, int burst, int perMinute, int maxKeys, MeterRegistry meterRegistry) {
+            this.intervalNanos = TimeUnit.MINUTES.toNanos(1) / perMinute;
+            this.capacityNanos = intervalNanos * burst;
+            this.maxKeys = maxKeys;
+
+            FunctionCounter.builder("security.login.throttled", throttled, LongAdder::sum)
+                    .tag("limit", limit)
+                    .tag("reason", "rate")
+                    .register(meterRegistry);
+            FunctionCounter.builder("security.login.throttled", overflows, LongAdder::sum)
+                    .tag("limit", limit)
+                    .tag("reason", "capacity")
+                    .register(meterRegistry);
+            Gauge.builder("security.login.throttle.keys", fullAt, Map::size)
+                    .tag("limit", limit)
+                    .register(meterRegistry);
+        }
+
+        private long tryAcquire(String key) {
+            long now = System.nanoTime();
+            AtomicLong bucket = fullAt.get(key);
+            if (bucket == null) {
+                if (fullAt.size() >= maxKeys && !sweep(now)) {
+                    // таблица забита активными ключами: новый ключ пропускается без своего ведра, его держит
+                    // второй лимит (адрес или email). Отказ здесь дал бы заполнить таблицу случайными email
+                    // и закрыть вход всем
+                    overflows.increment();
+                    return 0;
+                }
+                bucket = fullAt.computeIfAbsent(key, k -> new AtomicLong(now));
+            }
+            while (true) {
+                long current = bucket.get();
+                long next = Math.max(current, now) + intervalNanos;
+                if (next - now > capacityNanos) {
+                    throttled.increment();
+                    return next - now - capacityNanos;
+                }
+                if (bucket.compareAndSet(current, next)) {
+                    return 0;
+                }
+            }
+        }
+
+        private void refund(String key) {
+            AtomicLong bucket = fullAt.get(key);
+            if (bucket != null) {
+                bucket.addAndGet(-intervalNanos);
+            }
+        }
+
+        // полное ведро ничем не отличается от отсутствующего, его можно выбросить; не чаще раза в секунду
+        private boolean sweep(long now) {
+            long last = lastSweep.get();
+            if (now - last >= SWEEP_INTERVAL_NANOS && lastSweep.compareAndSet(last, now)) {
+                fullAt.values().removeIf(bucket -> bucket.get() - now <= 0);
+            }
+            return fullAt.size() < maxKeys;
+        }
+    }
+}
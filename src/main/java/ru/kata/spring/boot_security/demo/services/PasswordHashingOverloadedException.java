@@ -0,0 +1,8 @@
+package ru.kata.spring.boot_security.demo.services;
+
+public class PasswordHashingOverloadedException extends RuntimeException {
+
+    public PasswordHashingOverloadedException(String message) {
+        super(message);
+    }
+}
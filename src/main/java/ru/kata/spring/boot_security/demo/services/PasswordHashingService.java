@@ -0,0 +1,179 @@
+package ru.kata.spring.boot_security.demo.services;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// BCrypt намеренно медленный, поэтому хэширование вынесено из потоков Tomcat в отдельный ограниченный пул
+@Component
+public class PasswordHashingService {
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    // сколько задач импорта может быть в пуле (в работе и в очереди) одновременно
+    private final Semaphore bulkPermits;
+    private final long timeoutMillis;
+    private final LongAdder rejected = new LongAdder();
+    private final Timer encodeTimer;
+
+    public PasswordHashingService(PasswordEncoder passwordEncoder,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${app.security.hashing.threads:0}") int threads,
+                                  @Value("${app.security.hashing.queue-capacity:100}") int queueCapacity,
+                                  @Value("${app.security.hashing.timeout-ms:5000}") long timeoutMillis,
+                                  @Value("${app.security.hashing.bulk-permits:0}") int bulkPermits) {
+        this.passwordEncoder = passwordEncoder;
+        this.timeoutMillis = timeoutMillis;
+
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.bulkPermits = new Semaphore(bulkPermits > 0 ? bulkPermits : Math.max(1, poolSize / 2));
+
+        this.encodeTimer = Timer.builder("security.password.encode")
+                .description("Time spent hashing a password")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        FunctionCounter.builder("security.password.hashing.rejected", rejected, LongAdder::sum)
+                .register(meterRegistry);
+        Gauge.builder("security.password.hashing.active", executor, ThreadPoolExecutor::getActiveCount)
+                .register(meterRegistry);
+        Gauge.builder("security.password.hashing.queued", executor, pool -> pool.getQueue().size())
+                .register(meterRegistry);
+    }
+
+    // одиночное хэширование с запроса: при переполнении очереди сразу отказываем, а не держим поток сервлета
+    public String encode(String rawPassword) {
+        Future<String> hash;
+        try {
+            hash = executor.submit(withMdc(() -> timedEncode(rawPassword))::get);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new PasswordHashingOverloadedException("Password hashing queue is full");
+        }
+
+        try {
+            return hash.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // задачу из очереди это снимет, но начатый BCrypt прерывания не проверяет и досчитает, занимая поток;
+            // поэтому таймаут — это граница ожидания клиента, а не способ освободить пул
+            hash.cancel(true);
+            rejected.increment();
+            throw new PasswordHashingOverloadedException("Password hashing timed out");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing password", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    // массовое хэширование: не больше bulkPermits задач в пуле, остальное ждёт в вызывающем потоке,
+    // чтобы импорт не забивал очередь и одиночные encode() с запросов не получали 503
+    public List<String> encodeAll(List<String> rawPasswords) {
+        List<CompletableFuture<String>> hashes = new ArrayList<>(rawPasswords.size());
+        for (String rawPassword : rawPasswords) {
+            try {
+                bulkPermits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while hashing passwords", e);
+            }
+            CompletableFuture<String> hash;
+            try {
+                Supplier<String> task = withMdc(() -> timedEncode(rawPassword));
+                hash = CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return task.get();
+                    } finally {
+                        bulkPermits.release();
+                    }
+                }, executor);
+            } catch (RejectedExecutionException e) {
+                // очередь занята запросами: считаем сами, не отбирая у них место
+                try {
+                    hash = CompletableFuture.completedFuture(timedEncode(rawPassword));
+                } finally {
+                    bulkPermits.release();
+                }
+            }
+            hashes.add(hash);
+        }
+
+        List<String> result = new ArrayList<>(hashes.size());
+        for (CompletableFuture<String> hash : hashes) {
+            result.add(hash.join());
+        }
+        return result;
+    }
+
+    private String timedEncode(String rawPassword) {
+        return encodeTimer.record(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    // id запроса из MDC переносится в поток пула, чтобы логи хэширования оставались связаны с запросом
+    private static <T> Supplier<T> withMdc(Supplier<T> task) {
+        Map<String, String> context = MDC.getCopyOfContextMap();
+        return () -> {
+            Map<String, String> previous = MDC.getCopyOfContextMap();
+            if (context != null) {
+                MDC.setContextMap(context);
+            }
+            try {
+                return task.get();
+            } finally {
+                if (previous != null) {
+                    MDC.setContextMap(previous);
+                } else {
+                    MDC.clear();
+                }
+            }
+        };
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
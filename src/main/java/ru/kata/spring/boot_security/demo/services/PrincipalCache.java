@@ -0,0 +1,160 @@
+package ru.kata.spring.boot_security.demo.services;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// ограниченный по размеру и времени жизни кэш AccountDetails по email
+@Component
+public class PrincipalCache {
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final long ttlMillis;
+    private final int maxSize;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public PrincipalCache(@Value("${app.auth-cache.ttl-seconds:300}") long ttlSeconds,
+                          @Value("${app.auth-cache.max-size:10000}") int maxSize,
+                          MeterRegistry meterRegistry) {
+        this.ttlMillis = ttlSeconds * 1000;
+        this.maxSize = maxSize;
+
+        FunctionCounter.builder("auth.principal.cache.requests", hits, LongAdder::sum)
+                .tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("auth.principal.cache.requests", misses, LongAdder::sum)
+                .tag("result", "miss")
+                .register(meterRegistry);
+        FunctionCounter.builder("auth.principal.cache.evictions", evictions, LongAdder::sum)
+                .register(meterRegistry);
+        Gauge.builder("auth.principal.cache.size", entries, Map::size)
+                .register(meterRegistry);
+    }
+
+    public AccountDetails get(String email) {
+        Entry entry = entries.get(email);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.isExpired()) {
+            if (entries.remove(email, entry)) {
+                evictions.increment();
+            }
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.details;
+    }
+
+    public void put(AccountDetails details) {
+        if (maxSize <= 0) {
+            return;
+        }
+        if (entries.size() >= maxSize) {
+            makeRoom();
+        }
+        entries.put(details.getUsername(), new Entry(details, System.currentTimeMillis() + ttlMillis));
+    }
+
+    public void evict(String email) {
+        if (email == null) {
+            return;
+        }
+        afterCommit(() -> {
+            if (entries.remove(email) != null) {
+                evictions.increment();
+            }
+        });
+    }
+
+    public void evictById(Long id) {
+        afterCommit(() -> entries.values().removeIf(entry -> {
+            boolean matches = entry.details.getId().equals(id);
+            if (matches) {
+                evictions.increment();
+            }
+            return matches;
+        }));
+    }
+
+    public void evictAll() {
+        afterCommit(() -> {
+            evictions.add(entries.size());
+            entries.clear();
+        });
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public int getSize() {
+        return entries.size();
+    }
+
+    private void makeRoom() {
+        entries.values().removeIf(entry -> {
+            boolean expired = entry.isExpired();
+            if (expired) {
+                evictions.increment();
+            }
+            return expired;
+        });
+        Iterator<String> keys = entries.keySet().iterator();
+        while (entries.size() >= maxSize && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+            evictions.increment();
+        }
+    }
+
+    // пока транзакция не закоммичена, параллельный логин может снова положить в кэш старые данные
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static final class Entry {
+        private final AccountDetails details;
+        private final long expiresAt;
+
+        private Entry(AccountDetails details, long expiresAt) {
+            this.details = details;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired() {
+            return System.currentTimeMillis() > expiresAt;
+        }
+    }
+}
@@ -10,7 +10,7 @@ public interface RoleService {
 
     void addRole(Role role);
 
-    void updateRole(Role role);
+    void updateRole(Role role, Long expectedVersion);
 
     void deleteRole(Long id);
 
@@ -18,4 +18,8 @@ public interface RoleService {
 
     Role getRoleByName(String role);
 
+    String getRolesTag();
+
+    String getRoleTag(Long id);
+
 }
@@ -1,51 +1,92 @@
 package ru.kata.spring.boot_security.demo.services;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import ru.kata.spring.boot_security.demo.entities.Role;
+import ru.kata.spring.boot_security.demo.repository.EntityVersion;
 import ru.kata.spring.boot_security.demo.repository.RoleRepo;
 
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Map;
 
-@Transactional
 @Service
 public class RoleServiceImpl implements RoleService {
 
+    private static final Logger log = LoggerFactory.getLogger(RoleServiceImpl.class);
+
     private final RoleRepo roleRepo;
+    private final PrincipalCache principalCache;
+
+    // неизменяемый снимок таблицы roles: каноническое имя роли -> роль
+    private volatile Map<String, Role> rolesByName = Collections.emptyMap();
+    // ETag коллекции ролей из того же снимка: условные GET пользователей и ролей не читают roles
+    private volatile String rolesTag;
 
-    public RoleServiceImpl(RoleRepo roleRepo) {
+    public RoleServiceImpl(RoleRepo roleRepo, PrincipalCache principalCache) {
         this.roleRepo = roleRepo;
+        this.principalCache = principalCache;
     }
 
+    @PostConstruct
+    public void loadRoles() {
+        refreshRoles();
+    }
 
-
+    @Transactional(readOnly = true)
     @Override
     public List<Role> allRoles() {
-        System.out.println("=== ROLE SERVICE - GET ALL ROLES ===");
         List<Role> roles = roleRepo.findAll();
-        System.out.println("Retrieved " + roles.size() + " roles from database");
+        log.debug("Retrieved roles from database count={}", roles.size());
         return roles;
     }
 
+    @Transactional
     @Override
     public void addRole(Role role) {
+        role.setNameRole(requireName(role.getNameRole()));
         roleRepo.save(role);
+        refreshRolesAfterCommit();
     }
 
+    @Transactional
     @Override
-    public void updateRole(Role role) {
-        if (getRoleById(role.getId()).getNameRole().equals(role.getNameRole()) || isRoleNameUnique(role)) {
-            roleRepo.save(role);
+    public void updateRole(Role role, Long expectedVersion) {
+        Role existingRole = getRoleById(role.getId());
+        if (existingRole == null) {
+            throw new IllegalStateException("Role not found by id: " + role.getId());
+        }
+        // If-Match сверяем сразу; UPDATE при flush Hibernate и так делает с условием по version
+        if (expectedVersion != null && expectedVersion != existingRole.getVersion()) {
+            throw new ObjectOptimisticLockingFailureException(Role.class, role.getId());
+        }
+        String name = requireName(role.getNameRole());
+        if (existingRole.getNameRole().equals(name) || isRoleNameUnique(name)) {
+            // меняем загруженную сущность, а не мержим пришедшую: у неё нет актуальной версии
+            existingRole.setNameRole(name);
+            refreshRolesAfterCommit();
+            principalCache.evictAll();
         }
     }
 
+    @Transactional
     @Override
     public void deleteRole(Long id) {
         roleRepo.deleteById(id);
+        refreshRolesAfterCommit();
+        principalCache.evictAll();
     }
 
+    @Transactional(readOnly = true)
     @Override
     public Role getRoleById(Long id) {
         return roleRepo.findById(id).orElse(null);
@@ -54,32 +95,72 @@ public class RoleServiceImpl implements RoleService {
 
 
 
+    // из снимка в памяти, без обращения к БД
     @Override
     public Role getRoleByName(String roleName) throws IllegalStateException {
-        System.out.println("=== ROLE SERVICE - GET ROLE BY NAME ===");
+        String cleanedRoleName = Role.canonicalName(roleName);
 
+        Map<String, Role> roles = rolesByName;
+        Role role = roles.get(cleanedRoleName);
+
+        if (role != null) {
+            return role;
+        } else {
+            log.warn("Role not found role={} available={}", cleanedRoleName, roles.keySet());
+            throw new IllegalStateException("Role not found by name: " + cleanedRoleName);
+        }
+    }
 
-        String cleanedRoleName = roleName != null ? roleName.trim() : "";
-        System.out.println("Searching for role: '" + cleanedRoleName + "'");
-        System.out.println("Original role name: '" + roleName + "'");
+    @Override
+    public String getRolesTag() {
+        return rolesTag;
+    }
 
+    @Transactional(readOnly = true)
+    @Override
+    public String getRoleTag(Long id) {
+        return roleRepo.findVersionById(id)
+                .map(version -> EntityTags.single("role", version, null))
+                .orElse(null);
+    }
 
-        Optional<Role> role = roleRepo.findByNameRoleIgnoreCase(cleanedRoleName);
+    private boolean isRoleNameUnique(String name) {
+        return !roleRepo.findByNameRole(name).isPresent();
+    }
 
-        if (role.isPresent()) {
-            System.out.println("Found role: " + role.get().getNameRole());
-            return role.get();
-        } else {
-            System.out.println("Role not found: " + cleanedRoleName);
+    private static String requireName(String roleName) {
+        String name = Role.canonicalName(roleName);
+        if (name.isEmpty()) {
+            throw new IllegalArgumentException("Role name must not be blank");
+        }
+        return name;
+    }
 
-            List<Role> allRoles = roleRepo.findAll();
-            System.out.println("Available roles: " + allRoles.stream()
-                    .map(Role::getNameRole)
-                    .collect(Collectors.toList()));
-            throw new IllegalStateException("Role not found by name: " + cleanedRoleName);
+    private void refreshRolesAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            refreshRoles();
+            return;
         }
+        // снимок пересобирается только после коммита, чтобы откат не оставил в нём несуществующую роль
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                refreshRoles();
+            }
+        });
     }
-    private boolean isRoleNameUnique(Role role) {
-        return !roleRepo.findByNameRole(role.getNameRole()).isPresent();
+
+    private void refreshRoles() {
+        List<Role> roles = new ArrayList<>(roleRepo.findAll());
+        roles.sort(Comparator.comparing(Role::getId));
+        Map<String, Role> snapshot = new LinkedHashMap<>();
+        List<EntityVersion> versions = new ArrayList<>(roles.size());
+        for (Role role : roles) {
+            snapshot.put(Role.canonicalName(role.getNameRole()), new Role(role.getId(), role.getNameRole()));
+            versions.add(EntityTags.version(role.getId(), role.getVersion()));
+        }
+        rolesByName = Collections.unmodifiableMap(snapshot);
+        rolesTag = EntityTags.collection("roles", versions);
+        log.info("Role snapshot refreshed roles={}", snapshot.keySet());
     }
-}
\ No newline at end of file
+}
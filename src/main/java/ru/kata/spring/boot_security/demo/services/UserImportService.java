@@ -0,0 +1,12 @@
+package ru.kata.spring.boot_security.demo.services;
+
+import ru.kata.spring.boot_security.demo.dao.UserImportResult;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+public interface UserImportService {
+
+    List<UserImportResult> importUsers(InputStream json) throws IOException;
+}
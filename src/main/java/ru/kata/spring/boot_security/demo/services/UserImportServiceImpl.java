@@ -0,0 +1,189 @@
+package ru.kata.spring.boot_security.demo.services;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.kata.spring.boot_security.demo.dao.UserDao;
+import ru.kata.spring.boot_security.demo.dao.UserImportResult;
+import ru.kata.spring.boot_security.demo.entities.Role;
+import ru.kata.spring.boot_security.demo.entities.User;
+import ru.kata.spring.boot_security.demo.repository.UserJdbcRepo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+@Service
+public class UserImportServiceImpl implements UserImportService {
+
+    private final UserService userService;
+    private final RoleService roleService;
+    private final PasswordHashingService passwordHashingService;
+    private final UserJdbcRepo userJdbcRepo;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public UserImportServiceImpl(UserService userService, RoleService roleService,
+                                 PasswordHashingService passwordHashingService,
+                                 UserJdbcRepo userJdbcRepo, ObjectMapper objectMapper,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${app.import.chunk-size:500}") int chunkSize) {
+        this.userService = userService;
+        this.roleService = roleService;
+        this.passwordHashingService = passwordHashingService;
+        this.userJdbcRepo = userJdbcRepo;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    // принимает как JSON-массив, так и NDJSON: MappingIterator разворачивает массив верхнего уровня сам
+    @Override
+    public List<UserImportResult> importUsers(InputStream json) throws IOException {
+        List<UserImportResult> results = new ArrayList<>();
+        List<UserDao> chunk = new ArrayList<>(chunkSize);
+        int index = 0;
+
+        try (MappingIterator<UserDao> records = objectMapper.readerFor(UserDao.class).readValues(json)) {
+            while (true) {
+                UserDao record;
+                try {
+                    if (!records.hasNextValue()) {
+                        break;
+                    }
+                    record = records.nextValue();
+                } catch (IOException e) {
+                    results.add(new UserImportResult(index, null, UserImportResult.INVALID,
+                            "Malformed record, import stopped: " + e.getMessage()));
+                    break;
+                }
+                chunk.add(record);
+                index++;
+                if (chunk.size() == chunkSize) {
+                    importChunk(chunk, index - chunk.size(), results);
+                    chunk.clear();
+                }
+            }
+        }
+        // хвост (или всё, что успели прочитать до битой записи) всё равно импортируем
+        if (!chunk.isEmpty()) {
+            importChunk(chunk, index - chunk.size(), results);
+        }
+        results.sort((a, b) -> Integer.compare(a.getIndex(), b.getIndex()));
+        return results;
+    }
+
+    private void importChunk(List<UserDao> chunk, int firstIndex, List<UserImportResult> results) {
+        List<String> emails = new ArrayList<>(chunk.size());
+        List<String> errors = new ArrayList<>(chunk.size());
+        for (UserDao userDao : chunk) {
+            errors.add(validate(userDao));
+            if (userDao.getEmail() != null) {
+                emails.add(userDao.getEmail());
+            }
+        }
+
+        // одна проверка уникальности на весь чанк; uk_users_email регистронезависим, ключи тоже
+        Set<String> taken = new HashSet<>();
+        userJdbcRepo.findExistingEmails(emails).forEach(email -> taken.add(emailKey(email)));
+
+        List<UserDao> accepted = new ArrayList<>(chunk.size());
+        List<Set<Role>> acceptedRoles = new ArrayList<>(chunk.size());
+        List<Integer> indexes = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            UserDao userDao = chunk.get(i);
+            int index = firstIndex + i;
+            if (errors.get(i) != null) {
+                results.add(new UserImportResult(index, userDao.getEmail(), UserImportResult.INVALID, errors.get(i)));
+            } else if (!taken.add(emailKey(userDao.getEmail()))) {
+                results.add(new UserImportResult(index, userDao.getEmail(), UserImportResult.DUPLICATE,
+                        "User with this email already exists"));
+            } else {
+                try {
+                    // роли до хэширования: запись, которую не сохранить, не должна тратить BCrypt
+                    acceptedRoles.add(resolveRoles(userDao));
+                    accepted.add(userDao);
+                    indexes.add(index);
+                } catch (IllegalStateException e) {
+                    results.add(new UserImportResult(index, userDao.getEmail(), UserImportResult.INVALID, e.getMessage()));
+                }
+            }
+        }
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        // пароли всего чанка хэшируются параллельно на пуле хэширования
+        List<String> rawPasswords = new ArrayList<>(accepted.size());
+        accepted.forEach(userDao -> rawPasswords.add(userDao.getPassword()));
+        List<String> hashes = passwordHashingService.encodeAll(rawPasswords);
+
+        List<User> users = new ArrayList<>(accepted.size());
+        for (int i = 0; i < accepted.size(); i++) {
+            users.add(toUser(accepted.get(i), hashes.get(i), acceptedRoles.get(i)));
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                userJdbcRepo.insertUsers(users);
+                userJdbcRepo.insertUserRoles(users);
+            });
+            for (int i = 0; i < users.size(); i++) {
+                results.add(new UserImportResult(indexes.get(i), users.get(i).getEmail(), UserImportResult.CREATED, null));
+            }
+        } catch (DataAccessException e) {
+            for (int i = 0; i < users.size(); i++) {
+                results.add(new UserImportResult(indexes.get(i), users.get(i).getEmail(), UserImportResult.FAILED,
+                        "Chunk rolled back: " + e.getMostSpecificCause().getMessage()));
+            }
+        }
+    }
+
+    private String validate(UserDao userDao) {
+        try {
+            userService.validateUserData(userDao);
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+        if (userDao.getPassword() == null || userDao.getPassword().trim().isEmpty()) {
+            return "Password cannot be empty";
+        }
+        return null;
+    }
+
+    private static String emailKey(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private User toUser(UserDao userDao, String passwordHash, Set<Role> roles) {
+        User user = new User(userDao);
+        user.setPassword(passwordHash);
+        user.setRoles(roles);
+        return user;
+    }
+
+    // IllegalStateException, если нет даже роли по умолчанию
+    private Set<Role> resolveRoles(UserDao userDao) {
+        Set<Role> roles = new HashSet<>();
+        for (String roleName : userDao.getRoles()) {
+            try {
+                roles.add(roleService.getRoleByName(roleName));
+            } catch (IllegalStateException e) {
+                // неизвестные роли пропускаем так же, как при создании по одному
+            }
+        }
+        if (roles.isEmpty()) {
+            roles.add(roleService.getRoleByName("user"));
+        }
+        return roles;
+    }
+}
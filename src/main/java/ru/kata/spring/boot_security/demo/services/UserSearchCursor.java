@@ -0,0 +1,81 @@
+package ru.kata.spring.boot_security.demo.services;
+
+import ru.kata.spring.boot_security.demo.repository.UserSort;
+import ru.kata.spring.boot_security.demo.repository.UserSummary;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+// курсор поиска: значения ключей сортировки последней строки, каждое в base64url, через точку;
+// NULL (имя и возраст в старых строках могут быть пустыми) — отдельным символом вне алфавита base64url
+final class UserSearchCursor {
+
+    private static final String NULL = "~";
+
+    private UserSearchCursor() {
+    }
+
+    static String encode(UserSort sort, UserSummary last) {
+        List<String> parts = new ArrayList<>(sort.getKeys().size());
+        for (String key : sort.getKeys()) {
+            Object value = valueOf(key, last);
+            parts.add(value == null ? NULL : Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(value.toString().getBytes(StandardCharsets.UTF_8)));
+        }
+        return String.join(".", parts);
+    }
+
+    static List<Object> decode(UserSort sort, String cursor) {
+        String[] parts = cursor.split("\\.", -1);
+        if (parts.length != sort.getKeys().size()) {
+            throw new IllegalArgumentException("Cursor does not match sort");
+        }
+        List<Object> values = new ArrayList<>(parts.length);
+        try {
+            for (int i = 0; i < parts.length; i++) {
+                if (NULL.equals(parts[i])) {
+                    if ("id".equals(sort.getKeys().get(i))) {
+                        throw new IllegalArgumentException("Cursor id cannot be null");
+                    }
+                    values.add(null);
+                    continue;
+                }
+                String value = new String(Base64.getUrlDecoder().decode(parts[i]), StandardCharsets.UTF_8);
+                values.add(parse(sort.getKeys().get(i), value));
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+        return values;
+    }
+
+    private static Object valueOf(String key, UserSummary summary) {
+        switch (key) {
+            case "id":
+                return summary.getId();
+            case "firstName":
+                return summary.getFirstName();
+            case "lastName":
+                return summary.getLastName();
+            case "email":
+                return summary.getEmail();
+            case "age":
+                return summary.getAge();
+            default:
+                throw new IllegalStateException("Unknown sort key: " + key);
+        }
+    }
+
+    private static Object parse(String key, String value) {
+        switch (key) {
+            case "id":
+                return Long.valueOf(value);
+            case "age":
+                return Integer.valueOf(value);
+            default:
+                return value;
+        }
+    }
+}
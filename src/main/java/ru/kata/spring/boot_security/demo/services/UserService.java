@@ -1,29 +1,43 @@
 package ru.kata.spring.boot_security.demo.services;
 
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import ru.kata.spring.boot_security.demo.dao.UserDao;
+import ru.kata.spring.boot_security.demo.dao.UserPage;
+import ru.kata.spring.boot_security.demo.dao.UserSearchPage;
+import ru.kata.spring.boot_security.demo.dao.UserSearchQuery;
 import ru.kata.spring.boot_security.demo.entities.User;
 
 import java.util.List;
+import java.util.Map;
 
-public interface UserService extends UserDetailsService {
+public interface UserService extends UserDetailsService, UserDetailsPasswordService {
 
     List<User> allUsers();
     List<UserDao> getAllUsersAsDao();
+    UserPage getUsersPage(Long after, Integer limit);
+    String getUsersPageTag(Long after, Integer limit);
+    UserSearchPage searchUsers(UserSearchQuery query);
+    String getUserTag(Long id);
+    String getUserTagByEmail(String email);
+    String getCurrentUserTag();
     boolean addUser(UserDao userDto);
-    boolean updateUser(UserDao userDao);
+    boolean updateUser(UserDao userDao, Long expectedVersion);
+    boolean patchUser(Long id, Map<String, Object> patch, Long expectedVersion);
     void deleteUser(Long id);
     User getUserById(Long id);
     UserDao getUserDaoById(Long id);
+    UserDao getUserDaoByEmail(String email);
     User getUserByEmail(String email);
     UserDao getCurrentUserAsDao();
     User getCurrentUser();
-    boolean isEmailUniqueForUser(Long userId, String email);
     void validateUserData(UserDao userDao);
-    boolean isEmailUnique(UserDao userDao);
 
     @Override
     UserDetails loadUserByUsername(String email) throws UsernameNotFoundException;
+
+    @Override
+    UserDetails updatePassword(UserDetails user, String newPassword);
 }
\ No newline at end of file
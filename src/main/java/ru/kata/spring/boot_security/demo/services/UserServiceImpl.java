@@ -1,152 +1,361 @@
 package ru.kata.spring.boot_security.demo.services;
 
 import org.hibernate.Hibernate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.kata.spring.boot_security.demo.dao.UserDao;
+import ru.kata.spring.boot_security.demo.dao.UserPage;
+import ru.kata.spring.boot_security.demo.dao.UserSearchPage;
+import ru.kata.spring.boot_security.demo.dao.UserSearchQuery;
 import ru.kata.spring.boot_security.demo.entities.Role;
 import ru.kata.spring.boot_security.demo.entities.User;
+import ru.kata.spring.boot_security.demo.repository.EntityVersion;
+import ru.kata.spring.boot_security.demo.repository.UserJdbcRepo;
 import ru.kata.spring.boot_security.demo.repository.UserRepo;
+import ru.kata.spring.boot_security.demo.repository.UserRoleName;
+import ru.kata.spring.boot_security.demo.repository.UserSort;
+import ru.kata.spring.boot_security.demo.repository.UserSpecifications;
+import ru.kata.spring.boot_security.demo.repository.UserSummary;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 
-@Transactional
+// границы транзакций — на каждом методе: read-only для чтения, BCrypt и прочая работа без БД — вне транзакции
 @Service
 public class UserServiceImpl implements UserService {
 
+    private static final Logger log = LoggerFactory.getLogger(UserServiceImpl.class);
+
+    static final int DEFAULT_PAGE_SIZE = 50;
+    static final int MAX_PAGE_SIZE = 500;
+
     private final UserRepo userRepo;
+    private final UserJdbcRepo userJdbcRepo;
     private final RoleService roleService;
-    private final PasswordEncoder passwordEncoder;
-
-    public UserServiceImpl(UserRepo userRepo, RoleService roleService, PasswordEncoder passwordEncoder) {
+    private final PasswordHashingService passwordHashingService;
+    private final PrincipalCache principalCache;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+
+    public UserServiceImpl(UserRepo userRepo, UserJdbcRepo userJdbcRepo, RoleService roleService,
+                           PasswordHashingService passwordHashingService, PrincipalCache principalCache,
+                           PlatformTransactionManager transactionManager) {
         this.userRepo = userRepo;
+        this.userJdbcRepo = userJdbcRepo;
         this.roleService = roleService;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHashingService = passwordHashingService;
+        this.principalCache = principalCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
     }
 
+    @Transactional(readOnly = true)
     @Override
     public List<User> allUsers() {
         return userRepo.findAll();
     }
 
+    @Transactional(readOnly = true)
     @Override
     public List<UserDao> getAllUsersAsDao() {
-        return userRepo.findAll().stream()
+        return userRepo.findAllWithRoles().stream()
                 .map(UserDao::new)
                 .collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
     @Override
-    public boolean addUser(UserDao userDao) {
-        System.out.println("=== USER SERVICE - ADD USER ===");
-        System.out.println("Email: " + userDao.getEmail());
+    public UserPage getUsersPage(Long after, Integer limit) {
+        int pageSize = pageSize(limit);
+
+        // берём на одну запись больше, чтобы понять, есть ли следующая страница
+        List<UserSummary> summaries = userRepo.findSummariesAfter(cursor(after), PageRequest.of(0, pageSize + 1));
+        boolean hasNext = summaries.size() > pageSize;
+        List<UserSummary> pageSummaries = hasNext ? summaries.subList(0, pageSize) : summaries;
+        if (pageSummaries.isEmpty()) {
+            return new UserPage(List.of(), null);
+        }
 
-        validateUserData(userDao);
+        // второй и последний запрос: имена ролей всех пользователей страницы
+        List<UserDao> page = toUserDaos(pageSummaries);
+        Long nextCursor = hasNext ? page.get(page.size() - 1).getId() : null;
+        return new UserPage(page, nextCursor);
+    }
 
-        if (!isEmailUnique(userDao)) {
-            System.out.println("Email already exists: " + userDao.getEmail());
-            return false;
+    @Transactional(readOnly = true)
+    @Override
+    public UserSearchPage searchUsers(UserSearchQuery query) {
+        UserSort sort = UserSort.fromParameter(query.getSort());
+        boolean descending = isDescending(query.getDirection());
+        int pageSize = pageSize(query.getLimit());
+        List<Object> after = hasText(query.getAfter()) ? UserSearchCursor.decode(sort, query.getAfter()) : null;
+
+        List<UserSummary> summaries = userRepo.search(toSpecification(query), sort, descending, after, pageSize + 1);
+        boolean hasNext = summaries.size() > pageSize;
+        List<UserSummary> pageSummaries = hasNext ? summaries.subList(0, pageSize) : summaries;
+        if (pageSummaries.isEmpty()) {
+            return new UserSearchPage(List.of(), null);
+        }
+
+        String nextCursor = hasNext ? UserSearchCursor.encode(sort, pageSummaries.get(pageSummaries.size() - 1)) : null;
+        return new UserSearchPage(toUserDaos(pageSummaries), nextCursor);
+    }
+
+    // тег страницы считается по тем же id, что и сама страница, плюс версия таблицы ролей (в ответе имена ролей)
+    @Transactional(readOnly = true)
+    @Override
+    public String getUsersPageTag(Long after, Integer limit) {
+        int pageSize = pageSize(limit);
+        List<EntityVersion> versions = userRepo.findVersionsAfter(cursor(after), PageRequest.of(0, pageSize + 1));
+        return EntityTags.collection("users", versions, String.valueOf(pageSize), roleService.getRolesTag());
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public String getUserTag(Long id) {
+        return userRepo.findVersionById(id)
+                .map(version -> EntityTags.single("user", version, roleService.getRolesTag()))
+                .orElse(null);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public String getUserTagByEmail(String email) {
+        return userRepo.findVersionByEmail(email)
+                .map(version -> EntityTags.single("user", version, roleService.getRolesTag()))
+                .orElse(null);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public String getCurrentUserTag() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return null;
         }
-        System.out.println("Email is unique");
+        return getUserTagByEmail(authentication.getName());
+    }
+
+    // BCrypt — вне транзакции. Уникальность email проверяет сам INSERT (uk_users_email), без предварительного findByEmail
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Override
+    public boolean addUser(UserDao userDao) {
+        validateUserData(userDao);
 
         if (userDao.getPassword() == null || userDao.getPassword().trim().isEmpty()) {
-            System.out.println("Password is empty!");
             throw new IllegalArgumentException("Password cannot be empty");
         }
 
         try {
             User user = createUserFromForm(userDao);
-            userRepo.save(user);
-            System.out.println("User saved successfully with ID: " + user.getId());
+            List<User> users = List.of(user);
+            transactionTemplate.executeWithoutResult(status -> {
+                userJdbcRepo.insertUsers(users);
+                userJdbcRepo.insertUserRoles(users);
+            });
+            log.info("User created id={} email={}", user.getId(), user.getEmail());
             return true;
 
+        } catch (DuplicateKeyException e) {
+            log.debug("Add user rejected, email already exists email={}", userDao.getEmail());
+            return false;
+        } catch (PasswordHashingOverloadedException e) {
+            throw e;
         } catch (Exception e) {
-            System.out.println("Error saving user: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error saving user email={}", userDao.getEmail(), e);
             return false;
         }
     }
 
+    // BCrypt и разбор ролей — до транзакции, сама запись — короткая транзакция с одним условным UPDATE
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     @Override
-    public boolean updateUser(UserDao userDao) {
-        System.out.println("=== USER SERVICE - UPDATE USER ===");
-        System.out.println("Updating user with ID: " + userDao.getId());
-
+    public boolean updateUser(UserDao userDao, Long expectedVersion) {
         validateUserData(userDao);
 
         try {
-            User existingUser = getUserById(userDao.getId());
-            if (existingUser == null) {
-                System.out.println("User not found with ID: " + userDao.getId());
-                return false;
+            User user = new User();
+            user.setId(userDao.getId());
+            updateUserFromForm(userDao, user);
+
+            Boolean updated = transactionTemplate.execute(status -> {
+                if (userJdbcRepo.updateUser(user, expectedVersion) == 0) {
+                    return handleNoRowsUpdated(user.getId(), expectedVersion);
+                }
+
+                if (user.getRoles() != null) {
+                    userJdbcRepo.updateUserRoles(user.getId(), user.getRoles());
+                }
+                principalCache.evictById(user.getId());
+                return true;
+            });
+
+            if (Boolean.TRUE.equals(updated)) {
+                log.info("User updated id={}", user.getId());
+                return true;
             }
+            return false;
 
-            if (!isEmailUniqueForUser(userDao.getId(), userDao.getEmail())) {
-                System.out.println("Email already exists: " + userDao.getEmail());
-                return false;
-            }
+        } catch (DuplicateKeyException e) {
+            log.debug("Update user rejected, email already exists id={} email={}", userDao.getId(), userDao.getEmail());
+            return false;
+        } catch (PasswordHashingOverloadedException | OptimisticLockingFailureException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Error updating user id={}", userDao.getId(), e);
+            return false;
+        }
+    }
 
-            User updatedUser = updateUserFromForm(userDao, existingUser);
-            userRepo.save(updatedUser);
-            System.out.println("User updated successfully");
-            return true;
+    // JSON Merge Patch (RFC 7386): в UPDATE попадают только присланные поля, роли пишутся разницей
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Override
+    public boolean patchUser(Long id, Map<String, Object> patch, Long expectedVersion) {
+        Map<String, Object> columns = toColumns(patch);
+        Set<Role> roles = patch.containsKey("roles") ? resolveRoles(toRoleNames(patch.get("roles"))) : null;
+        Object password = patch.get("password");
+        if (password instanceof String && !((String) password).trim().isEmpty()) {
+            columns.put("password", passwordHashingService.encode((String) password));
+        }
+        // email, пароль и роли входят в AccountDetails; смена возраста или имени кэш не трогает
+        boolean principalChanged = columns.containsKey("email") || columns.containsKey("password") || roles != null;
 
-        } catch (Exception e) {
-            System.out.println("Error updating user: " + e.getMessage());
-            e.printStackTrace();
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    patchInTransaction(id, columns, roles, expectedVersion, principalChanged));
+        } catch (DuplicateKeyException e) {
+            log.debug("Patch user rejected, email already exists id={} email={}", id, columns.get("email"));
             return false;
         }
+        log.info("User patched id={} columns={} rolesChanged={}", id, columns.keySet(), roles != null);
+        return true;
+    }
+
+    // занятый email отсекает uk_users_email прямо в UPDATE: DuplicateKeyException откатывает транзакцию
+    private void patchInTransaction(Long id, Map<String, Object> columns, Set<Role> roles, Long expectedVersion,
+                                       boolean principalChanged) {
+        if (columns.isEmpty() && roles == null) {
+            EntityVersion current = userRepo.findVersionById(id)
+                    .orElseThrow(() -> new IllegalStateException("User not found by id"));
+            if (expectedVersion != null && !expectedVersion.equals(current.getVersion())) {
+                throw new ObjectOptimisticLockingFailureException(User.class, id);
+            }
+            return;
+        }
+
+        if (userJdbcRepo.updateColumns(id, columns, expectedVersion) == 0) {
+            handleNoRowsUpdated(id, expectedVersion);
+            throw new IllegalStateException("User not found by id");
+        }
+        if (roles != null) {
+            userJdbcRepo.updateUserRoles(id, roles);
+        }
+        if (principalChanged) {
+            principalCache.evictById(id);
+        }
     }
 
+    @Transactional
     @Override
     public void deleteUser(Long id) {
-        System.out.println("Deleting user with ID: " + id);
         userRepo.deleteById(id);
+        principalCache.evictById(id);
+        log.info("User deleted id={}", id);
     }
 
+    @Transactional(readOnly = true)
     @Override
     public User getUserById(Long id) {
-        System.out.println("Getting user by ID: " + id);
         return userRepo.findById(id).orElse(null);
     }
 
+    @Transactional(readOnly = true)
     @Override
     public UserDao getUserDaoById(Long id) {
-        User user = getUserById(id);
-        return user != null ? new UserDao(user) : null;
+        return userRepo.findSummaryById(id)
+                .map(this::toUserDao)
+                .orElse(null);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public UserDao getUserDaoByEmail(String email) throws IllegalStateException {
+        return userRepo.findSummaryByEmail(email)
+                .map(this::toUserDao)
+                .orElseThrow(() -> new IllegalStateException("User not found by email"));
     }
 
     @Transactional(readOnly = true)
     @Override
     public User getUserByEmail(String email) throws IllegalStateException {
-        System.out.println("Getting user by email: " + email);
         return userRepo.findByEmail(email).orElseThrow(() -> new IllegalStateException("User not found by email"));
     }
 
+    @Transactional(readOnly = true)
     @Override
     public UserDao getCurrentUserAsDao() {
-        User currentUser = getCurrentUser();
-        return new UserDao(currentUser);
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()) {
+            throw new IllegalStateException("User not authenticated");
+        }
+        return getUserDaoByEmail(authentication.getName());
     }
 
-    @Transactional(readOnly = true)
+    // попадание в кэш принципалов не занимает соединение из пула, промах читает пользователя в короткой транзакции
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
-        System.out.println("Loading user by username (email): " + email);
-        User user = getUserByEmail(email);
-        Hibernate.initialize(user.getRoles());
-        return user;
+        AccountDetails cached = principalCache.get(email);
+        if (cached != null) {
+            return cached;
+        }
+
+        log.debug("Principal cache miss, loading user email={}", email);
+        AccountDetails details = readOnlyTransactionTemplate.execute(status -> {
+            // без JOIN FETCH: роли берутся из кэша второго уровня (коллекция User.roles + сущности Role)
+            User user = userRepo.findByEmail(email)
+                    .orElseThrow(() -> new IllegalStateException("User not found by email"));
+            Hibernate.initialize(user.getRoles());
+            return new AccountDetails(user);
+        });
+        principalCache.put(details);
+        return details;
     }
 
+    @Transactional
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        log.info("Upgrading password hash email={}", user.getUsername());
+        if (userRepo.updatePasswordByEmail(user.getUsername(), user.getPassword(), newPassword) == 0) {
+            log.debug("Password hash changed concurrently, upgrade skipped email={}", user.getUsername());
+        }
+        principalCache.evict(user.getUsername());
+        return user instanceof AccountDetails ? ((AccountDetails) user).withPassword(newPassword) : user;
+    }
+
+    @Transactional(readOnly = true)
     @Override
     public User getCurrentUser() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
@@ -156,12 +365,6 @@ public class UserServiceImpl implements UserService {
         return getUserByEmail(authentication.getName());
     }
 
-    @Override
-    public boolean isEmailUniqueForUser(Long userId, String email) {
-        User existingUser = userRepo.findByEmail(email).orElse(null);
-        return existingUser == null || existingUser.getId().equals(userId);
-    }
-
     @Override
     public void validateUserData(UserDao userDao) {
         if (userDao.getFirstName() == null || userDao.getFirstName().trim().isEmpty()) {
@@ -178,9 +381,144 @@ public class UserServiceImpl implements UserService {
         }
     }
 
-    @Override
-    public boolean isEmailUnique(UserDao userDao) {
-        return !userRepo.findByEmail(userDao.getEmail()).isPresent();
+    private Specification<User> toSpecification(UserSearchQuery query) {
+        Specification<User> specification = Specification.where(null);
+        if (hasText(query.getFirstName())) {
+            specification = specification.and(UserSpecifications.firstNameStartsWith(query.getFirstName().trim()));
+        }
+        if (hasText(query.getLastName())) {
+            specification = specification.and(UserSpecifications.lastNameStartsWith(query.getLastName().trim()));
+        }
+        if (hasText(query.getEmail())) {
+            specification = specification.and(UserSpecifications.emailStartsWith(query.getEmail().trim()));
+        }
+        if (query.getMinAge() != null) {
+            specification = specification.and(UserSpecifications.ageAtLeast(query.getMinAge()));
+        }
+        if (query.getMaxAge() != null) {
+            specification = specification.and(UserSpecifications.ageAtMost(query.getMaxAge()));
+        }
+        if (hasText(query.getRole())) {
+            Role role;
+            try {
+                role = roleService.getRoleByName(query.getRole());
+            } catch (IllegalStateException e) {
+                throw new IllegalArgumentException("Unknown role: " + query.getRole());
+            }
+            specification = specification.and(UserSpecifications.hasRole(role.getId()));
+        }
+        return specification;
+    }
+
+    private static boolean isDescending(String direction) {
+        if (!hasText(direction) || direction.equalsIgnoreCase("asc")) {
+            return false;
+        }
+        if (direction.equalsIgnoreCase("desc")) {
+            return true;
+        }
+        throw new IllegalArgumentException("Unsupported direction: " + direction);
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.trim().isEmpty();
+    }
+
+    private static int pageSize(Integer limit) {
+        return limit == null || limit <= 0 ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
+    }
+
+    private static long cursor(Long after) {
+        return after != null ? after : 0L;
+    }
+
+    private UserDao toUserDao(UserSummary summary) {
+        return toUserDaos(List.of(summary)).get(0);
+    }
+
+    // пароль в проекции не выбирается, поэтому в ответ на чтение хэш не попадает
+    private List<UserDao> toUserDaos(List<UserSummary> summaries) {
+        List<Long> ids = summaries.stream()
+                .map(UserSummary::getId)
+                .collect(Collectors.toList());
+        Map<Long, List<String>> roleNames = new HashMap<>();
+        for (UserRoleName roleName : userRepo.findRoleNamesByUserIdIn(ids)) {
+            roleNames.computeIfAbsent(roleName.getUserId(), id -> new ArrayList<>()).add(roleName.getRoleName());
+        }
+
+        List<UserDao> users = new ArrayList<>(summaries.size());
+        for (UserSummary summary : summaries) {
+            String[] roles = roleNames.getOrDefault(summary.getId(), List.of()).toArray(new String[0]);
+            UserDao user = new UserDao(summary.getId(), summary.getFirstName(), summary.getLastName(), null,
+                    summary.getAge(), roles, summary.getEmail());
+            user.setVersion(summary.getVersion());
+            users.add(user);
+        }
+        return users;
+    }
+
+    // UPDATE не нашёл строку: пользователя нет (false) или версия устарела (исключение)
+    private boolean handleNoRowsUpdated(Long id, Long expectedVersion) {
+        if (!userRepo.findVersionById(id).isPresent()) {
+            log.debug("Update user rejected, not found id={}", id);
+            return false;
+        }
+        log.debug("Update user rejected, stale version id={} expectedVersion={}", id, expectedVersion);
+        throw new ObjectOptimisticLockingFailureException(User.class, id);
+    }
+
+    // поля патча -> колонки users; неизвестные поля и поля только для чтения (id, version) пропускаются
+    private Map<String, Object> toColumns(Map<String, Object> patch) {
+        Map<String, Object> columns = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> field : patch.entrySet()) {
+            Object value = field.getValue();
+            switch (field.getKey()) {
+                case "firstName":
+                    columns.put("first_name", requireText(value, "First name cannot be empty"));
+                    break;
+                case "lastName":
+                    columns.put("last_name", requireText(value, "Last name cannot be empty"));
+                    break;
+                case "email":
+                    columns.put("email", requireText(value, "Email cannot be empty"));
+                    break;
+                case "age":
+                    if (!(value instanceof Integer) || (Integer) value <= 0) {
+                        throw new IllegalArgumentException("Age must be positive");
+                    }
+                    columns.put("age", value);
+                    break;
+                default:
+                    break;
+            }
+        }
+        return columns;
+    }
+
+    private static String requireText(Object value, String message) {
+        if (!(value instanceof String) || ((String) value).trim().isEmpty()) {
+            throw new IllegalArgumentException(message);
+        }
+        return (String) value;
+    }
+
+    // null в merge patch означает удаление значения: роли сбрасываются к роли по умолчанию
+    private static String[] toRoleNames(Object value) {
+        if (value == null) {
+            return new String[0];
+        }
+        if (!(value instanceof List)) {
+            throw new IllegalArgumentException("Roles must be an array of role names");
+        }
+        List<?> names = (List<?>) value;
+        String[] roleNames = new String[names.size()];
+        for (int i = 0; i < roleNames.length; i++) {
+            if (!(names.get(i) instanceof String)) {
+                throw new IllegalArgumentException("Roles must be an array of role names");
+            }
+            roleNames[i] = (String) names.get(i);
+        }
+        return roleNames;
     }
 
     private User createUserFromForm(UserDao userDao) {
@@ -191,7 +529,7 @@ public class UserServiceImpl implements UserService {
         user.setEmail(userDao.getEmail());
 
         if (userDao.getPassword() != null && !userDao.getPassword().trim().isEmpty()) {
-            user.setPassword(passwordEncoder.encode(userDao.getPassword()));
+            user.setPassword(passwordHashingService.encode(userDao.getPassword()));
         } else {
             throw new IllegalArgumentException("Password cannot be empty");
         }
@@ -201,8 +539,6 @@ public class UserServiceImpl implements UserService {
     }
 
     private User updateUserFromForm(UserDao userDao, User existingUser) {
-        System.out.println("Updating user from form data");
-
         existingUser.setFirstName(userDao.getFirstName());
         existingUser.setLastName(userDao.getLastName());
         existingUser.setAge(userDao.getAge());
@@ -211,40 +547,41 @@ public class UserServiceImpl implements UserService {
         setRoles(existingUser, userDao);
 
         if (userDao.getPassword() != null && !userDao.getPassword().trim().isEmpty()) {
-            String encodedPassword = passwordEncoder.encode(userDao.getPassword());
+            String encodedPassword = passwordHashingService.encode(userDao.getPassword());
             existingUser.setPassword(encodedPassword);
-            System.out.println("Password updated");
-        } else {
-            System.out.println("Password not changed");
+            log.debug("Password changed id={}", existingUser.getId());
         }
 
         return existingUser;
     }
 
     private void setRoles(User user, UserDao userDao) {
-        System.out.println("Setting roles for user");
+        Set<Role> roles = resolveRoles(userDao.getRoles());
+        if (roles != null) {
+            user.setRoles(roles);
+        }
+    }
 
-        if (userDao.getRoles() != null && userDao.getRoles().length > 0) {
-            Set<Role> userRoles = Arrays.stream(userDao.getRoles())
+    // роли по именам из снимка RoleService; пустой список — роль user, null — если её нет
+    private Set<Role> resolveRoles(String[] roleNames) {
+        if (roleNames != null && roleNames.length > 0) {
+            return Arrays.stream(roleNames)
                     .map(roleName -> {
                         try {
                             return roleService.getRoleByName(roleName);
                         } catch (Exception e) {
-                            System.out.println("Role not found: " + roleName);
+                            log.warn("Skipping unknown role role={}", roleName);
                             return null;
                         }
                     })
                     .filter(Objects::nonNull)
                     .collect(Collectors.toSet());
-            user.setRoles(userRoles);
-            System.out.println("Roles set: " + userRoles);
         } else {
             try {
-                Role userRole = roleService.getRoleByName("user");
-                user.setRoles(Set.of(userRole));
-                System.out.println("Default role set: user");
+                return Set.of(roleService.getRoleByName("user"));
             } catch (Exception e) {
-                System.out.println("Default role 'user' not found!");
+                log.error("Default role not found role=user");
+                return null;
             }
         }
     }
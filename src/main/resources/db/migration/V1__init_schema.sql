@@ -0,0 +1,34 @@
+-- Схема, совпадающая с сущностями User и Role; Hibernate её только проверяет (ddl-auto=validate).
+-- Без ENGINE/CHARSET: на MySQL 8 по умолчанию InnoDB и utf8mb4_0900_ai_ci, скрипт выполняется и на H2 в тестах.
+
+CREATE TABLE roles
+(
+    id        BIGINT       NOT NULL AUTO_INCREMENT,
+    name_role VARCHAR(255) NOT NULL,
+    version   BIGINT       NOT NULL DEFAULT 0,
+    CONSTRAINT pk_roles PRIMARY KEY (id),
+    -- сопоставление *_ci регистронезависимое: 'Admin' и 'admin' не сосуществуют, поиск по имени идёт по этому индексу
+    CONSTRAINT uk_roles_name_role UNIQUE (name_role)
+);
+
+CREATE TABLE users
+(
+    id         BIGINT       NOT NULL AUTO_INCREMENT,
+    first_name VARCHAR(255),
+    last_name  VARCHAR(255),
+    age        INT,
+    email      VARCHAR(255) NOT NULL,
+    password   VARCHAR(255),
+    version    BIGINT       NOT NULL DEFAULT 0,
+    CONSTRAINT pk_users PRIMARY KEY (id),
+    CONSTRAINT uk_users_email UNIQUE (email)
+);
+
+CREATE TABLE user_roles
+(
+    user_id BIGINT NOT NULL,
+    role_id BIGINT NOT NULL,
+    CONSTRAINT pk_user_roles PRIMARY KEY (user_id, role_id),
+    CONSTRAINT fk_user_roles_user FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE,
+    CONSTRAINT fk_user_roles_role FOREIGN KEY (role_id) REFERENCES roles (id)
+);
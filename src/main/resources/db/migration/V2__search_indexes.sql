@@ -0,0 +1,9 @@
+-- Индексы под горячие запросы. Базы, созданные ddl-auto=update, baseline'ятся на версии 1 и получают только эту миграцию.
+
+-- первичный ключ (user_id, role_id) не помогает фильтру по роли и выборке пользователей роли
+CREATE INDEX idx_user_roles_role_user ON user_roles (role_id, user_id);
+
+-- keyset-поиск /api/users/search: префикс + сортировка читаются одним диапазоном индекса
+CREATE INDEX idx_users_last_first_id ON users (last_name, first_name, id);
+CREATE INDEX idx_users_first_name_id ON users (first_name, id);
+CREATE INDEX idx_users_age_id ON users (age, id);
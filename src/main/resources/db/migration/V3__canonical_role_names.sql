@@ -0,0 +1,2 @@
+-- Имена ролей хранятся в канонической форме (Role.canonicalName): поиск идёт равенством по uk_roles_name_role, без LOWER()
+UPDATE roles SET name_role = LOWER(TRIM(name_role));
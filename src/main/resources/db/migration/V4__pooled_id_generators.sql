@@ -0,0 +1,13 @@
+-- id для users и roles выдаёт пул TableGenerator (allocationSize = 50) вместо AUTO_INCREMENT:
+-- с IDENTITY Hibernate вынужден вставлять каждую строку сразу и не может батчить INSERT.
+-- AUTO_INCREMENT на колонках остаётся, но все вставки теперь идут с явным id.
+CREATE TABLE id_generators
+(
+    sequence_name VARCHAR(255) NOT NULL,
+    next_val      BIGINT       NOT NULL,
+    CONSTRAINT pk_id_generators PRIMARY KEY (sequence_name)
+);
+
+-- старт с MAX(id) + 50: первый блок pooled-оптимизатора целиком лежит выше существующих id
+INSERT INTO id_generators (sequence_name, next_val) SELECT 'users', COALESCE(MAX(id), 0) + 50 FROM users;
+INSERT INTO id_generators (sequence_name, next_val) SELECT 'roles', COALESCE(MAX(id), 0) + 50 FROM roles;
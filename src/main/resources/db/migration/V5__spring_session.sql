@@ -0,0 +1,29 @@
+-- Хранилище HTTP-сессий Spring Session JDBC (схема schema-mysql.sql без ENGINE/ROW_FORMAT, чтобы выполнялась и на H2).
+-- Имена таблиц в верхнем регистре: так их пишет JdbcIndexedSessionRepository, а на Linux MySQL их различает.
+
+CREATE TABLE SPRING_SESSION
+(
+    PRIMARY_ID            CHAR(36) NOT NULL,
+    SESSION_ID            CHAR(36) NOT NULL,
+    CREATION_TIME         BIGINT   NOT NULL,
+    LAST_ACCESS_TIME      BIGINT   NOT NULL,
+    MAX_INACTIVE_INTERVAL INT      NOT NULL,
+    EXPIRY_TIME           BIGINT   NOT NULL,
+    PRINCIPAL_NAME        VARCHAR(100),
+    CONSTRAINT pk_spring_session PRIMARY KEY (PRIMARY_ID)
+);
+
+CREATE UNIQUE INDEX uk_spring_session_session_id ON SPRING_SESSION (SESSION_ID);
+-- очистка просроченных сессий по расписанию
+CREATE INDEX idx_spring_session_expiry_time ON SPRING_SESSION (EXPIRY_TIME);
+CREATE INDEX idx_spring_session_principal_name ON SPRING_SESSION (PRINCIPAL_NAME);
+
+CREATE TABLE SPRING_SESSION_ATTRIBUTES
+(
+    SESSION_PRIMARY_ID CHAR(36)     NOT NULL,
+    ATTRIBUTE_NAME     VARCHAR(200) NOT NULL,
+    ATTRIBUTE_BYTES    BLOB         NOT NULL,
+    CONSTRAINT pk_spring_session_attributes PRIMARY KEY (SESSION_PRIMARY_ID, ATTRIBUTE_NAME),
+    CONSTRAINT fk_spring_session_attributes_session FOREIGN KEY (SESSION_PRIMARY_ID)
+        REFERENCES SPRING_SESSION (PRIMARY_ID) ON DELETE CASCADE
+);
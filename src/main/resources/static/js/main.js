@@ -5,6 +5,12 @@ class UserManagement {
         this.baseUrl = window.location.origin;
         this.currentUser = null;
         this.csrfToken = null;
+        this.nextCursor = null;
+        this.pageSize = 50;
+        // фильтры поиска; пустой объект — обычный список /api/users
+        this.searchParams = {};
+        // url -> { etag, data }: последние полученные ответы для условных GET
+        this.responseCache = new Map();
         this.init();
     }
 
@@ -38,12 +44,34 @@ class UserManagement {
         }
     }
 
+    // GET с If-None-Match: на 304 сервер не собирает тело, а мы берём данные из responseCache
+    async fetchJson(url) {
+        const cached = this.responseCache.get(url);
+        const headers = cached ? { 'If-None-Match': cached.etag } : {};
+        const response = await fetch(url, { headers });
+
+        if (response.status === 304 && cached) {
+            return { ok: true, status: 304, data: cached.data, etag: cached.etag };
+        }
+        if (!response.ok) {
+            this.responseCache.delete(url);
+            return { ok: false, status: response.status, data: null, etag: null };
+        }
+
+        const data = await response.json();
+        const etag = response.headers.get('ETag');
+        if (etag) {
+            this.responseCache.set(url, { etag, data });
+        }
+        return { ok: true, status: response.status, data, etag };
+    }
+
     // Загрузка текущего пользователя
     async loadCurrentUser() {
         try {
-            const response = await fetch(`${this.baseUrl}/api/users/current`);
+            const response = await this.fetchJson(`${this.baseUrl}/api/users/current`);
             if (response.ok) {
-                this.currentUser = await response.json();
+                this.currentUser = response.data;
                 this.updateUserInfo();
             }
         } catch (error) {
@@ -66,13 +94,22 @@ class UserManagement {
         }
     }
 
-    // Загрузка таблицы пользователей
-    async loadUsersTable() {
+    // Загрузка таблицы пользователей (первая страница или следующая после курсора)
+    async loadUsersTable(after = null) {
         try {
-            const response = await fetch(`${this.baseUrl}/api/users`);
+            const params = new URLSearchParams(this.searchParams);
+            params.set('limit', this.pageSize);
+            if (after !== null) {
+                params.set('after', after);
+            }
+            const path = Object.keys(this.searchParams).length > 0 ? '/api/users/search' : '/api/users';
+            const url = `${this.baseUrl}${path}?${params}`;
+            const response = await this.fetchJson(url);
             if (response.ok) {
-                const users = await response.json();
-                this.renderUsersTable(users);
+                const page = response.data;
+                this.renderUsersTable(page.users, after !== null);
+                this.nextCursor = page.nextCursor;
+                this.updateLoadMoreButton();
             } else {
                 this.showError('Ошибка загрузки пользователей');
             }
@@ -83,11 +120,13 @@ class UserManagement {
     }
 
     // Рендер таблицы пользователей
-    renderUsersTable(users) {
+    renderUsersTable(users, append = false) {
         const tbody = document.getElementById('usersTableBody');
         if (!tbody) return;
 
-        tbody.innerHTML = '';
+        if (!append) {
+            tbody.innerHTML = '';
+        }
 
         users.forEach(user => {
             const row = this.createUserRow(user);
@@ -95,6 +134,14 @@ class UserManagement {
         });
     }
 
+    // Показ кнопки "Показать ещё", если есть следующая страница
+    updateLoadMoreButton() {
+        const loadMoreBtn = document.getElementById('loadMoreUsersBtn');
+        if (loadMoreBtn) {
+            loadMoreBtn.style.display = this.nextCursor !== null ? '' : 'none';
+        }
+    }
+
     // Создание строки таблицы для пользователя
     createUserRow(user) {
         const row = document.createElement('tr');
@@ -146,9 +193,11 @@ class UserManagement {
     // Открытие модального окна редактирования
     async openEditModal(userId) {
         try {
-            const response = await fetch(`${this.baseUrl}/api/users/${userId}`);
+            const response = await this.fetchJson(`${this.baseUrl}/api/users/${userId}`);
             if (response.ok) {
-                const user = await response.json();
+                const user = response.data;
+                // версия, которую видел админ: уйдёт в If-Match при сохранении
+                this.editEtag = response.etag;
                 this.populateEditForm(user);
                 $('#editUserModal').modal('show');
             } else {
@@ -238,6 +287,35 @@ class UserManagement {
             });
         }
 
+        // Поиск: непустые поля формы уходят в /api/users/search
+        const searchForm = document.getElementById('userSearchForm');
+        if (searchForm) {
+            searchForm.addEventListener('submit', (e) => {
+                e.preventDefault();
+                this.searchParams = {};
+                new FormData(searchForm).forEach((value, key) => {
+                    if (value.trim() !== '' && !(key === 'sort' && value === 'id')) {
+                        this.searchParams[key] = value.trim();
+                    }
+                });
+                this.loadUsersTable();
+            });
+            searchForm.addEventListener('reset', () => {
+                this.searchParams = {};
+                this.loadUsersTable();
+            });
+        }
+
+        // Обработчик кнопки подгрузки следующей страницы
+        const loadMoreBtn = document.getElementById('loadMoreUsersBtn');
+        if (loadMoreBtn) {
+            loadMoreBtn.addEventListener('click', () => {
+                if (this.nextCursor !== null) {
+                    this.loadUsersTable(this.nextCursor);
+                }
+            });
+        }
+
         // Обработчики модальных окон
         $('#createUserModal').on('hidden.bs.modal', () => {
             const form = document.getElementById('createUserForm');
@@ -346,13 +424,21 @@ class UserManagement {
         formData.id = parseInt(userId);
 
         try {
+            const headers = this.getHeaders();
+            if (this.editEtag) {
+                headers['If-Match'] = this.editEtag;
+            }
             const response = await fetch(`${this.baseUrl}/api/users/${userId}`, {
                 method: 'PUT',
-                headers: this.getHeaders(),
+                headers,
                 body: JSON.stringify(formData)
             });
 
-            if (response.ok) {
+            if (response.status === 412) {
+                this.showError('Пользователь был изменён другим администратором. Откройте форму заново.');
+                $('#editUserModal').modal('hide');
+                this.loadUsersTable();
+            } else if (response.ok) {
                 this.showSuccess('Пользователь успешно обновлен');
                 $('#editUserModal').modal('hide');
                 this.loadUsersTable();
@@ -0,0 +1,79 @@
+package ru.kata.spring.boot_security.demo;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import ru.kata.spring.boot_security.demo.dao.UserDao;
+import ru.kata.spring.boot_security.demo.services.UserService;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// обновление базы, созданной ddl-auto=update до Flyway: baseline на V1, остальные миграции, ddl-auto=validate
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + LegacySchemaUpgradeTest.URL,
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "app.metrics.password=test-metrics"})
+class LegacySchemaUpgradeTest {
+
+    static final String URL = "jdbc:h2:mem:legacy-upgrade;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserService userService;
+
+    // до подъёма контекста, то есть до Flyway
+    @BeforeAll
+    static void createLegacySchema() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(URL, "sa", "")) {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("db/legacy/ddl-auto-schema.sql"));
+        }
+    }
+
+    @Test
+    void upgradesPreFlywaySchemaAndKeepsData() {
+        // V1 не выполнялась: таблицы уже были, версия 1 — отметка baseline
+        List<String> versions = jdbcTemplate.queryForList("SELECT CONCAT(\"version\", ':', \"type\") "
+                + "FROM \"flyway_schema_history\" WHERE \"success\" AND \"version\" IS NOT NULL "
+                + "ORDER BY \"installed_rank\"", String.class);
+        assertEquals(List.of("1:BASELINE", "2:SQL", "3:SQL", "4:SQL", "5:SQL", "6:JDBC", "7:JDBC", "8:JDBC"), versions);
+
+        assertEquals(0L, jdbcTemplate.queryForObject("SELECT version FROM users WHERE id = 1", Long.class));
+        // дубль 'Admin' слит в роль с меньшим id вместе со связями
+        assertEquals(List.of("admin", "user"),
+                jdbcTemplate.queryForList("SELECT name_role FROM roles ORDER BY name_role", String.class));
+        assertEquals(List.of(2L), jdbcTemplate.queryForList(
+                "SELECT role_id FROM user_roles WHERE user_id = 2", Long.class));
+        assertThrows(DuplicateKeyException.class,
+                () -> jdbcTemplate.update("INSERT INTO roles (id, name_role) VALUES (100, 'admin')"));
+
+        // ограничения V1, которых не было в старой схеме
+        assertThrows(DuplicateKeyException.class, () -> jdbcTemplate.update(
+                "INSERT INTO users (id, email, version) VALUES (100, 'legacy@mail.ru', 0)"));
+        assertThrows(DataIntegrityViolationException.class,
+                () -> jdbcTemplate.update("INSERT INTO user_roles (user_id, role_id) VALUES (1, 100)"));
+
+        UserDao legacy = userService.getUserDaoByEmail("legacy@mail.ru");
+        String[] roles = legacy.getRoles();
+        Arrays.sort(roles);
+        assertEquals(0L, legacy.getVersion());
+        assertArrayEquals(new String[]{"admin", "user"}, roles);
+    }
+}
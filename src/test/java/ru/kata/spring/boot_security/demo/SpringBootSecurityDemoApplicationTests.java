@@ -3,7 +3,7 @@ package ru.kata.spring.boot_security.demo;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = {"app.jpa.fail-on-lazy-load-outside-transaction=true", "app.metrics.password=test-metrics"})
 class SpringBootSecurityDemoApplicationTests {
 
 	@Test
@@ -0,0 +1,43 @@
+package ru.kata.spring.boot_security.demo.configs;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+import ru.kata.spring.boot_security.demo.services.AccountDetails;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompactSessionCodecTest {
+
+    private final CompactSessionCodec codec = new CompactSessionCodec(getClass().getClassLoader());
+
+    @Test
+    void storesFormLoginContextAsIdEmailAndAuthorities() {
+        AccountDetails account = AccountDetails.of(7L, "user@mail.ru", List.of("user", "admin"));
+        SecurityContext context = new SecurityContextImpl(
+                new UsernamePasswordAuthenticationToken(account, "secret", account.getAuthorities()));
+
+        byte[] bytes = codec.encode(context);
+        SecurityContext restored = (SecurityContext) codec.decode(bytes);
+        AccountDetails principal = (AccountDetails) restored.getAuthentication().getPrincipal();
+
+        assertTrue(bytes.length < 64, "encoded size " + bytes.length);
+        assertTrue(restored.getAuthentication().isAuthenticated());
+        assertNull(restored.getAuthentication().getCredentials());
+        assertEquals(7L, principal.getId());
+        assertEquals("user@mail.ru", principal.getUsername());
+        assertNull(principal.getPassword());
+        assertEquals(account.getAuthorities(), restored.getAuthentication().getAuthorities());
+    }
+
+    @Test
+    void fallsBackToJavaSerializationForOtherAttributes() {
+        assertEquals("/admin", codec.decode(codec.encode("/admin")));
+        assertEquals(List.of(1, 2), codec.decode(codec.encode(List.of(1, 2))));
+    }
+}
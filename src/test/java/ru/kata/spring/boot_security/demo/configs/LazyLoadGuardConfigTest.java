@@ -0,0 +1,70 @@
+package ru.kata.spring.boot_security.demo.configs;
+
+import org.hibernate.LazyInitializationException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.kata.spring.boot_security.demo.entities.User;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// режим app.jpa.fail-on-lazy-load-outside-transaction на встроенной H2: ленивая загрузка без транзакции падает,
+// а REST собирает DTO внутри сервисных транзакций
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:lazy-load-guard;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "app.jpa.fail-on-lazy-load-outside-transaction=true",
+        "app.metrics.password=test-metrics"})
+@AutoConfigureMockMvc
+class LazyLoadGuardConfigTest {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void failsLazyLoadOutsideTransactionEvenWithOpenSession() {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            User admin = entityManager.find(User.class, adminId());
+
+            // без режима Hibernate подгрузил бы роли: сессия открыта
+            LazyInitializationException e = assertThrows(LazyInitializationException.class,
+                    () -> admin.getRoles().size());
+            assertTrue(e.getMessage().contains("outside a transaction"), e.getMessage());
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    @Test
+    void servesUserWithRolesBuiltInsideTransaction() throws Exception {
+        mockMvc.perform(get("/api/users/{id}", adminId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.email").value("admin@admin.com"))
+                .andExpect(jsonPath("$.roles", containsInAnyOrder("admin", "user")));
+    }
+
+    // администратора создаёт DataLoader при старте
+    private Long adminId() {
+        return jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = 'admin@admin.com'", Long.class);
+    }
+}
@@ -0,0 +1,51 @@
+package ru.kata.spring.boot_security.demo.configs;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UpgradingPasswordEncoderTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final UpgradingPasswordEncoder encoder = new UpgradingPasswordEncoder(5, registry);
+
+    @Test
+    void matchesLegacyHashesWithoutPrefix() {
+        String legacy = new BCryptPasswordEncoder(4).encode("secret");
+
+        assertTrue(encoder.matches("secret", legacy));
+        assertFalse(encoder.matches("wrong", legacy));
+    }
+
+    @Test
+    void upgradesOnlyHashesBelowTargetCost() {
+        assertTrue(encoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode("secret")));
+        assertFalse(encoder.upgradeEncoding(new BCryptPasswordEncoder(6).encode("secret")));
+        assertFalse(encoder.upgradeEncoding(encoder.encode("secret")));
+    }
+
+    @Test
+    void doesNotUpgradeIdsItCannotMatch() {
+        assertFalse(encoder.upgradeEncoding("{noop}secret"));
+        assertFalse(encoder.upgradeEncoding("{sha256}abcdef"));
+        assertFalse(encoder.matches("secret", "{noop}secret"));
+    }
+
+    @Test
+    void recordsVerificationTimePerAlgorithmAndCost() {
+        String hash = encoder.encode("secret");
+        encoder.matches("secret", hash);
+        encoder.matches("wrong", hash);
+
+        assertEquals(1, registry.get("security.password.verify")
+                .tags("algorithm", "bcrypt", "cost", "5", "result", "match")
+                .timer().count());
+        assertEquals(1, registry.get("security.password.verify")
+                .tags("algorithm", "bcrypt", "cost", "5", "result", "mismatch")
+                .timer().count());
+    }
+}
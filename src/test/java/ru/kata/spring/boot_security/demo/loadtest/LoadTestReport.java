@@ -0,0 +1,65 @@
+package ru.kata.spring.boot_security.demo.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+class LoadTestReport {
+
+    private final Map<String, Object> environment = new LinkedHashMap<>();
+    private final Map<String, Map<String, Object>> endpoints = new LinkedHashMap<>();
+
+    void environment(String key, Object value) {
+        environment.put(key, value);
+    }
+
+    Map<String, Object> endpoint(String name, long[] latenciesNanos, int errors, long wallNanos, long sqlStatements) {
+        long[] sorted = latenciesNanos.clone();
+        Arrays.sort(sorted);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("requests", sorted.length);
+        result.put("errors", errors);
+        result.put("throughputRps", round(sorted.length / (wallNanos / 1e9)));
+        result.put("p50Ms", millis(percentile(sorted, 0.50)));
+        result.put("p99Ms", millis(percentile(sorted, 0.99)));
+        result.put("maxMs", millis(sorted.length > 0 ? sorted[sorted.length - 1] : 0));
+        result.put("sqlStatements", sqlStatements);
+        result.put("sqlPerRequest", round((double) sqlStatements / Math.max(1, sorted.length)));
+        endpoints.put(name, result);
+        return result;
+    }
+
+    void write(String path) throws IOException {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("environment", environment);
+        report.put("endpoints", endpoints);
+
+        File file = new File(path);
+        if (file.getParentFile() != null) {
+            file.getParentFile().mkdirs();
+        }
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file, report);
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static double millis(long nanos) {
+        return round(nanos / 1e6);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
@@ -0,0 +1,76 @@
+package ru.kata.spring.boot_security.demo.loadtest;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.LongAdder;
+
+// считает SQL на уровне соединений: и Hibernate, и JdbcTemplate (UserJdbcRepo), и Spring Session.
+// Statistics Hibernate видит только свои запросы
+class StatementCountingDataSource extends DelegatingDataSource {
+
+    private final LongAdder statements = new LongAdder();
+
+    StatementCountingDataSource(DataSource target) {
+        super(target);
+    }
+
+    long count() {
+        return statements.sum();
+    }
+
+    void reset() {
+        statements.reset();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return counting(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return counting(super.getConnection(username, password));
+    }
+
+    // prepareStatement/prepareCall — один запрос (батч тоже, как в Statistics.getPrepareStatementCount),
+    // у обычного Statement считается каждое выполнение
+    private Connection counting(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    String name = method.getName();
+                    if (name.equals("prepareStatement") || name.equals("prepareCall")) {
+                        statements.increment();
+                    }
+                    Object result = invoke(connection, method, args);
+                    if (name.equals("createStatement")) {
+                        return counting((Statement) result);
+                    }
+                    return result;
+                });
+    }
+
+    private Statement counting(Statement statement) {
+        return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[]{Statement.class},
+                (proxy, method, args) -> {
+                    if (method.getName().startsWith("execute")) {
+                        statements.increment();
+                    }
+                    return invoke(statement, method, args);
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package ru.kata.spring.boot_security.demo.loadtest;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import ru.kata.spring.boot_security.demo.entities.Role;
+import ru.kata.spring.boot_security.demo.entities.User;
+import ru.kata.spring.boot_security.demo.repository.UserJdbcRepo;
+import ru.kata.spring.boot_security.demo.services.RoleService;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Нагрузочный прогон REST API на встроенной H2: mvn -Ploadtest test [-Dloadtest.users=100000 -Dloadtest.concurrency=32]
+@Tag("loadtest")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("loadtest")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class UserApiLoadTest {
+
+    private static final String PASSWORD = "password";
+    private static final int SEED_CHUNK = 1000;
+
+    @LocalServerPort
+    private int port;
+
+    @Value("${loadtest.users}")
+    private int userCount;
+
+    @Value("${loadtest.requests}")
+    private int requestCount;
+
+    @Value("${loadtest.concurrency}")
+    private int concurrency;
+
+    @Value("${loadtest.report}")
+    private String reportPath;
+
+    @Autowired
+    private UserJdbcRepo userJdbcRepo;
+
+    @Autowired
+    private RoleService roleService;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StatementCountingDataSource dataSource;
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private List<Long> userIds;
+
+    @BeforeAll
+    void seedUsers() {
+        Role userRole = roleService.getRoleByName("user");
+        // один хэш на всех: сидирование не должно упираться в BCrypt
+        String hash = passwordEncoder.encode(PASSWORD);
+
+        List<User> chunk = new ArrayList<>(SEED_CHUNK);
+        for (int i = 0; i < userCount; i++) {
+            User user = new User("First" + i, "Last" + i);
+            user.setEmail(email(i));
+            user.setPassword(hash);
+            user.setAge(18 + i % 60);
+            user.setRoles(Set.of(userRole));
+            chunk.add(user);
+            if (chunk.size() == SEED_CHUNK || i == userCount - 1) {
+                userJdbcRepo.insertUsers(chunk);
+                userJdbcRepo.insertUserRoles(chunk);
+                chunk.clear();
+            }
+        }
+        userIds = jdbcTemplate.queryForList("SELECT id FROM users ORDER BY id", Long.class);
+    }
+
+    @Test
+    void runScenarios() throws Exception {
+        LoadTestReport report = new LoadTestReport();
+        report.environment("users", userIds.size());
+        report.environment("requestsPerEndpoint", requestCount);
+        report.environment("concurrency", concurrency);
+        report.environment("availableProcessors", Runtime.getRuntime().availableProcessors());
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        results.add(run(report, "GET /api/users", i -> get("/api/users?limit=50")));
+        results.add(run(report, "GET /api/users?after", i -> get("/api/users?limit=50&after=" + userId(i))));
+        results.add(run(report, "GET /api/users/search", i -> get("/api/users/search?limit=50&sort=lastName&lastName=Last" + i % 100)));
+        results.add(run(report, "GET /api/users/{id}",i -> get("/api/users/" + userId(i))));
+        results.add(run(report, "PATCH /api/users/{id}", i -> HttpRequest.newBuilder(uri("/api/users/" + userId(i)))
+                .header("Content-Type", "application/json")
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"age\": " + (20 + i % 50) + "}"))
+                .build()));
+        results.add(run(report, "POST /login", i -> HttpRequest.newBuilder(uri("/login"))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .header("Accept", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("email=" + email(i % userCount) + "&password=" + PASSWORD))
+                .build()));
+
+        report.write(reportPath);
+        for (Map<String, Object> result : results) {
+            assertEquals(0, result.get("errors"), result.toString());
+        }
+    }
+
+    private Map<String, Object> run(LoadTestReport report, String name, IntFunction<HttpRequest> requests)
+            throws InterruptedException {
+        // прогрев, чтобы JIT и пул соединений не попали в замер
+        for (int i = 0; i < Math.min(50, requestCount); i++) {
+            send(requests.apply(i));
+        }
+
+        dataSource.reset();
+
+        long[] latencies = new long[requestCount];
+        AtomicInteger errors = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        long start = System.nanoTime();
+        for (int i = 0; i < requestCount; i++) {
+            int index = i;
+            executor.execute(() -> {
+                long requestStart = System.nanoTime();
+                if (!send(requests.apply(index))) {
+                    errors.incrementAndGet();
+                }
+                latencies[index] = System.nanoTime() - requestStart;
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.MINUTES);
+        long wall = System.nanoTime() - start;
+
+        return report.endpoint(name, latencies, errors.get(), wall, dataSource.count());
+    }
+
+    private boolean send(HttpRequest request) {
+        try {
+            HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+            return response.statusCode() / 100 == 2;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(uri(path)).GET().build();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private long userId(int index) {
+        return userIds.get(index % userIds.size());
+    }
+
+    private static String email(int index) {
+        return "load" + index + "@mail.ru";
+    }
+
+    @TestConfiguration
+    static class CountingConfig {
+
+        // запись пользователей идёт через JdbcTemplate, поэтому SQL считается на уровне DataSource
+        @Bean
+        static BeanPostProcessor statementCountingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource && !(bean instanceof StatementCountingDataSource)
+                            ? new StatementCountingDataSource((DataSource) bean) : bean;
+                }
+            };
+        }
+    }
+}
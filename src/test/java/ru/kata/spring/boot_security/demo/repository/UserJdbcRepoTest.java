@@ -0,0 +1,142 @@
+package ru.kata.spring.boot_security.demo.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DuplicateKeyException;
+import ru.kata.spring.boot_security.demo.entities.Role;
+import ru.kata.spring.boot_security.demo.entities.User;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@Import(UserJdbcRepo.class)
+class UserJdbcRepoTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private UserJdbcRepo userJdbcRepo;
+
+    @Autowired
+    private UserRepo userRepo;
+
+    @Test
+    void insertsUsersWithRolesInBatches() {
+        Role admin = entityManager.persist(new Role(null, "admin"));
+        Role user = entityManager.persist(new Role(null, "user"));
+        entityManager.flush();
+
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            User entity = new User("First" + i, "Last" + i);
+            entity.setEmail("batch" + i + "@mail.ru");
+            entity.setPassword("hash");
+            entity.setAge(30);
+            entity.setRoles(i == 0 ? Set.of(admin, user) : Set.of(user));
+            users.add(entity);
+        }
+
+        userJdbcRepo.insertUsers(users);
+        userJdbcRepo.insertUserRoles(users);
+
+        assertEquals(List.of("batch0@mail.ru"), userJdbcRepo.findExistingEmails(List.of("batch0@mail.ru", "new@mail.ru")));
+        List<User> saved = userRepo.findAllWithRoles();
+        assertEquals(10, saved.size());
+        assertTrue(saved.stream().allMatch(u -> u.getRoles().contains(user)));
+        assertEquals(2, userRepo.findWithRolesByEmail("batch0@mail.ru").orElseThrow().getRoles().size());
+    }
+
+    @Test
+    void updatesOnlyWhenVersionMatches() {
+        Role admin = entityManager.persist(new Role(null, "admin"));
+        Role user = entityManager.persist(new Role(null, "user"));
+        User entity = new User("First", "Last");
+        entity.setEmail("versioned@mail.ru");
+        entity.setPassword("hash");
+        entity.setAge(30);
+        entity.setRoles(Set.of(user));
+        Long id = entityManager.persistAndFlush(entity).getId();
+        entityManager.clear();
+
+        User changes = new User("Changed", "Last");
+        changes.setId(id);
+        changes.setEmail("versioned@mail.ru");
+        changes.setAge(31);
+
+        assertEquals(0, userJdbcRepo.updateUser(changes, 5L));
+        assertEquals(1, userJdbcRepo.updateUser(changes, 0L));
+        assertEquals(0, userJdbcRepo.updateUser(changes, 0L));
+        userJdbcRepo.updateUserRoles(id, Set.of(admin, user));
+
+        User saved = userRepo.findWithRolesByEmail("versioned@mail.ru").orElseThrow();
+        assertEquals(1, saved.getVersion());
+        assertEquals("Changed", saved.getFirstName());
+        assertEquals("hash", saved.getPassword());
+        assertEquals(2, saved.getRoles().size());
+    }
+
+    @Test
+    void jdbcAndJpaInsertsShareIdPool() {
+        Role user = entityManager.persistAndFlush(new Role(null, "user"));
+
+        List<User> imported = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            User entity = new User("Imported" + i, "Last");
+            entity.setEmail("imported" + i + "@mail.ru");
+            entity.setPassword("hash");
+            entity.setAge(30);
+            entity.setRoles(Set.of(user));
+            imported.add(entity);
+        }
+        userJdbcRepo.insertUsers(imported);
+        userJdbcRepo.insertUserRoles(imported);
+
+        User created = new User("Created", "Last");
+        created.setEmail("created@mail.ru");
+        created.setPassword("hash");
+        created.setAge(30);
+        created.setRoles(Set.of(user));
+        Long createdId = entityManager.persistAndFlush(created).getId();
+
+        Set<Long> ids = new HashSet<>();
+        imported.forEach(entity -> ids.add(entity.getId()));
+        assertEquals(3, ids.size());
+        assertFalse(ids.contains(createdId));
+        assertEquals(4, userRepo.findAllWithRoles().size());
+    }
+
+    @Test
+    void duplicateEmailIsRejectedByUniqueConstraint() {
+        Role user = entityManager.persistAndFlush(new Role(null, "user"));
+        List<User> first = List.of(newUser("taken@mail.ru", user));
+        List<User> other = List.of(newUser("free@mail.ru", user));
+        userJdbcRepo.insertUsers(first);
+        userJdbcRepo.insertUsers(other);
+
+        assertThrows(DuplicateKeyException.class, () -> userJdbcRepo.insertUsers(List.of(newUser("taken@mail.ru", user))));
+        assertThrows(DuplicateKeyException.class,
+                () -> userJdbcRepo.updateColumns(other.get(0).getId(), Map.of("email", "taken@mail.ru"), null));
+    }
+
+    private static User newUser(String email, Role role) {
+        User entity = new User("First", "Last");
+        entity.setEmail(email);
+        entity.setPassword("hash");
+        entity.setAge(30);
+        entity.setRoles(Set.of(role));
+        return entity;
+    }
+}
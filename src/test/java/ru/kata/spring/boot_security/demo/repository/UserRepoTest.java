@@ -0,0 +1,169 @@
+package ru.kata.spring.boot_security.demo.repository;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.domain.Specification;
+import ru.kata.spring.boot_security.demo.dao.UserDao;
+import ru.kata.spring.boot_security.demo.entities.Role;
+import ru.kata.spring.boot_security.demo.entities.User;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class UserRepoTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private UserRepo userRepo;
+
+    @Test
+    void usersPageWithRoleNamesUsesConstantNumberOfQueries() {
+        Role admin = entityManager.persist(new Role(null, "admin"));
+        Role user = entityManager.persist(new Role(null, "user"));
+
+        persistUsers(0, 5, admin, user);
+        long smallPage = countStatementsForPage(100);
+
+        persistUsers(5, 50, admin, user);
+        long largePage = countStatementsForPage(100);
+
+        assertEquals(2, smallPage);
+        assertEquals(smallPage, largePage);
+    }
+
+    @Test
+    void allUsersWithRolesUsesSingleQuery() {
+        Role admin = entityManager.persist(new Role(null, "admin"));
+        Role user = entityManager.persist(new Role(null, "user"));
+        persistUsers(0, 20, admin, user);
+
+        Statistics statistics = statistics();
+        statistics.clear();
+        List<UserDao> users = userRepo.findAllWithRoles().stream()
+                .map(UserDao::new)
+                .collect(Collectors.toList());
+
+        assertEquals(20, users.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void searchPagesThroughFilteredUsersByKeyset() {
+        Role admin = entityManager.persist(new Role(null, "admin"));
+        Role user = entityManager.persist(new Role(null, "user"));
+        persistUsers(0, 30, admin, user);
+
+        Specification<User> filter = UserSpecifications.lastNameStartsWith("Last1")
+                .and(UserSpecifications.hasRole(admin.getId()))
+                .and(UserSpecifications.ageAtLeast(20));
+
+        List<String> seen = new ArrayList<>();
+        List<Object> after = null;
+        while (true) {
+            List<UserSummary> page = userRepo.search(filter, UserSort.LAST_NAME, true, after, 2);
+            if (page.isEmpty()) {
+                break;
+            }
+            page.forEach(summary -> seen.add(summary.getLastName()));
+            UserSummary last = page.get(page.size() - 1);
+            after = List.of(last.getLastName(), last.getFirstName(), last.getId());
+        }
+
+        // Last1, Last10..Last19 с чётными номерами (у них роль admin), по убыванию фамилии
+        List<String> expected = new ArrayList<>(List.of("Last10", "Last12", "Last14", "Last16", "Last18"));
+        expected.sort(Comparator.reverseOrder());
+        assertEquals(expected, seen);
+    }
+
+    @Test
+    void searchPagesThroughNullSortKeys() {
+        Role admin = entityManager.persist(new Role(null, "admin"));
+        Role user = entityManager.persist(new Role(null, "user"));
+        persistUsers(0, 4, admin, user);
+        for (int i = 0; i < 3; i++) {
+            // строки из базы до миграций: фамилия и возраст могут быть NULL
+            User entity = new User("Nameless" + i, null);
+            entity.setEmail("nameless" + i + "@mail.ru");
+            entity.setRoles(Set.of(user));
+            entityManager.persist(entity);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        for (boolean descending : new boolean[]{false, true}) {
+            assertEquals(7, pageThrough(UserSort.LAST_NAME, descending).size());
+            assertEquals(7, pageThrough(UserSort.AGE, descending).size());
+        }
+    }
+
+    private Set<Long> pageThrough(UserSort sort, boolean descending) {
+        Set<Long> seen = new HashSet<>();
+        List<Object> after = null;
+        while (true) {
+            List<UserSummary> page = userRepo.search(null, sort, descending, after, 2);
+            if (page.isEmpty()) {
+                return seen;
+            }
+            for (UserSummary summary : page) {
+                assertTrue(seen.add(summary.getId()), "row repeated: " + summary.getId());
+            }
+            UserSummary last = page.get(page.size() - 1);
+            after = sort == UserSort.AGE
+                    ? Arrays.asList(last.getAge(), last.getId())
+                    : Arrays.asList(last.getLastName(), last.getFirstName(), last.getId());
+        }
+    }
+
+    private long countStatementsForPage(int limit) {
+        Statistics statistics = statistics();
+        statistics.clear();
+
+        List<UserSummary> users = userRepo.findSummariesAfter(0L, PageRequest.of(0, limit));
+        List<Long> ids = users.stream()
+                .map(UserSummary::getId)
+                .collect(Collectors.toList());
+        Map<Long, Long> rolesPerUser = userRepo.findRoleNamesByUserIdIn(ids).stream()
+                .collect(Collectors.groupingBy(UserRoleName::getUserId, Collectors.counting()));
+
+        assertEquals(users.size(), rolesPerUser.size());
+        assertEquals(0, statistics.getEntityLoadCount());
+        return statistics.getPrepareStatementCount();
+    }
+
+    private void persistUsers(int from, int to, Role admin, Role user) {
+        for (int i = from; i < to; i++) {
+            User entity = new User("First" + i, "Last" + i);
+            entity.setEmail("user" + i + "@mail.ru");
+            entity.setPassword("password");
+            entity.setAge(20 + i % 50);
+            entity.setRoles(i % 2 == 0 ? Set.of(admin, user) : Set.of(user));
+            entityManager.persist(entity);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private Statistics statistics() {
+        return entityManager.getEntityManager()
+                .getEntityManagerFactory()
+                .unwrap(SessionFactory.class)
+                .getStatistics();
+    }
+}
@@ -0,0 +1,48 @@
+package ru.kata.spring.boot_security.demo.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AuthTokenServiceTest {
+
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+
+    private final AuthTokenService tokens = new AuthTokenService(new ObjectMapper(), true, SECRET, 900);
+    private final AccountDetails account = AccountDetails.of(7L, "user@mail.ru", List.of("user", "admin"));
+
+    @Test
+    void roundTripsIdEmailAndAuthorities() {
+        AccountDetails verified = tokens.verify(tokens.issue(account));
+
+        assertNotNull(verified);
+        assertEquals(7L, verified.getId());
+        assertEquals("user@mail.ru", verified.getUsername());
+        assertEquals(account.getAuthorities(), verified.getAuthorities());
+    }
+
+    @Test
+    void rejectsTamperedForeignAndExpiredTokens() {
+        String token = tokens.issue(account);
+        String[] parts = token.split("\\.");
+
+        assertNull(tokens.verify(parts[0] + "." + parts[1] + "x." + parts[2]));
+        assertNull(tokens.verify(parts[0] + "." + parts[1] + "."));
+        assertNull(tokens.verify("garbage"));
+        assertNull(new AuthTokenService(new ObjectMapper(), true, SECRET + "-other", 900).verify(token));
+        assertNull(tokens.verify(new AuthTokenService(new ObjectMapper(), true, SECRET, -1).issue(account)));
+    }
+
+    @Test
+    void refusesToStartEnabledWithoutSharedSecret() {
+        assertThrows(IllegalStateException.class, () -> new AuthTokenService(new ObjectMapper(), true, "", 900));
+        assertThrows(IllegalStateException.class, () -> new AuthTokenService(new ObjectMapper(), true, "short", 900));
+        new AuthTokenService(new ObjectMapper(), false, "", 900);
+    }
+}
@@ -0,0 +1,91 @@
+package ru.kata.spring.boot_security.demo.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoginThrottleTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void throttlesEmailAfterBurstRegardlessOfCase() {
+        LoginThrottle throttle = new LoginThrottle(true, 3, 1, 100, 100, 1000, registry);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, throttle.tryAcquire("User@mail.ru", "10.0.0." + i));
+        }
+        long retryAfter = throttle.tryAcquire(" user@MAIL.ru", "10.0.0.9");
+
+        assertTrue(retryAfter > 0 && retryAfter <= 60, "retry after " + retryAfter);
+        assertEquals(0, throttle.tryAcquire("other@mail.ru", "10.0.0.9"));
+        assertEquals(1, registry.get("security.login.throttled").tags("limit", "email", "reason", "rate")
+                .functionCounter().count());
+    }
+
+    @Test
+    void throttlesAddressAcrossEmails() {
+        LoginThrottle throttle = new LoginThrottle(true, 100, 100, 2, 1, 1000, registry);
+
+        assertEquals(0, throttle.tryAcquire("a@mail.ru", "10.0.0.1"));
+        assertEquals(0, throttle.tryAcquire("b@mail.ru", "10.0.0.1"));
+
+        assertTrue(throttle.tryAcquire("c@mail.ru", "10.0.0.1") > 0);
+        assertEquals(0, throttle.tryAcquire("c@mail.ru", "10.0.0.2"));
+    }
+
+    @Test
+    void ownSuccessfulLoginsDoNotRefillAddressBudget() {
+        LoginThrottle throttle = new LoginThrottle(true, 2, 1, 4, 1, 1000, registry);
+
+        // свой верный вход вперемешку с подбором чужих паролей
+        int guesses = 0;
+        for (int i = 0; i < 10; i++) {
+            if (throttle.tryAcquire("own@mail.ru", "10.0.0.1") == 0) {
+                throttle.recordSuccess("own@mail.ru");
+            }
+            if (throttle.tryAcquire("victim" + i + "@mail.ru", "10.0.0.1") == 0) {
+                guesses++;
+            }
+        }
+
+        assertTrue(guesses <= 2, "guesses " + guesses);
+    }
+
+    @Test
+    void successfulLoginRefundsEmailBudget() {
+        LoginThrottle throttle = new LoginThrottle(true, 1, 1, 100, 100, 1000, registry);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, throttle.tryAcquire("own@mail.ru", "10.0.0." + i));
+            throttle.recordSuccess("own@mail.ru");
+        }
+    }
+
+    @Test
+    void admitsNewKeysWithoutBucketWhenTableIsFullOfActiveBuckets() {
+        LoginThrottle throttle = new LoginThrottle(true, 1, 1, 100, 100, 2, registry);
+
+        // таблица email забита перебором, у каждого ключа ведро пусто
+        assertEquals(0, throttle.tryAcquire("spray1@mail.ru", "10.0.0.1"));
+        assertEquals(0, throttle.tryAcquire("spray2@mail.ru", "10.0.0.1"));
+        assertTrue(throttle.tryAcquire("spray1@mail.ru", "10.0.0.1") > 0);
+
+        // новый пользователь входит; его ограничивает только лимит адреса
+        assertEquals(0, throttle.tryAcquire("user@mail.ru", "10.0.0.2"));
+        assertEquals(0, throttle.tryAcquire("user@mail.ru", "10.0.0.2"));
+        assertEquals(2, registry.get("security.login.throttled").tags("limit", "email", "reason", "capacity")
+                .functionCounter().count());
+    }
+
+    @Test
+    void addressLimitStillAppliesToUntrackedEmails() {
+        LoginThrottle throttle = new LoginThrottle(true, 1, 1, 2, 1, 1, registry);
+
+        assertEquals(0, throttle.tryAcquire("spray@mail.ru", "10.0.0.1"));
+        assertEquals(0, throttle.tryAcquire("victim@mail.ru", "10.0.0.1"));
+        assertTrue(throttle.tryAcquire("victim@mail.ru", "10.0.0.1") > 0);
+    }
+}
@@ -0,0 +1,47 @@
+package ru.kata.spring.boot_security.demo.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PasswordHashingServiceTest {
+
+    // медленный «хэш», чтобы задачи импорта гарантированно занимали пул
+    private final PasswordEncoder slowEncoder = new PasswordEncoder() {
+        @Override
+        public String encode(CharSequence rawPassword) {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "hashed:" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encodedPassword.equals(encode(rawPassword));
+        }
+    };
+
+    @Test
+    void bulkImportLeavesRoomForInteractiveHashing() {
+        // два потока и два места в очереди, импорту — один поток
+        PasswordHashingService service = new PasswordHashingService(slowEncoder, new SimpleMeterRegistry(), 2, 2, 5000, 1);
+        CompletableFuture<List<String>> bulk = CompletableFuture.supplyAsync(
+                () -> service.encodeAll(Collections.nCopies(30, "bulk")));
+
+        while (!bulk.isDone()) {
+            assertEquals("hashed:single", service.encode("single"));
+        }
+
+        assertEquals(30, bulk.join().size());
+        assertEquals(0, service.getRejectedCount());
+    }
+}
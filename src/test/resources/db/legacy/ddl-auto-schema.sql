@@ -0,0 +1,35 @@
+-- Схема и данные базы до Flyway: то, что создавал ddl-auto=update по исходным сущностям
+-- (без колонок version, без V1-индексов и ограничений, имена ролей не канонические). Уникального email и
+-- ключа на roles нет: ddl-auto=update добавлял их только при создании таблицы и пропускал неудавшиеся
+CREATE TABLE roles
+(
+    id        BIGINT NOT NULL AUTO_INCREMENT,
+    name_role VARCHAR(255),
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE users
+(
+    id         BIGINT       NOT NULL AUTO_INCREMENT,
+    age        INTEGER,
+    email      VARCHAR(255) NOT NULL,
+    first_name VARCHAR(255),
+    last_name  VARCHAR(255),
+    password   VARCHAR(255),
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE user_roles
+(
+    user_id BIGINT NOT NULL,
+    role_id BIGINT NOT NULL,
+    PRIMARY KEY (user_id, role_id),
+    CONSTRAINT FKhfh9dx7w3ubf1co1vdev94g3f FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+-- 'Admin' и ' admin' различались до канонизации: без уникального индекса V3 делает из них две роли 'admin'
+INSERT INTO roles (id, name_role) VALUES (1, 'User'), (2, ' admin'), (3, 'Admin');
+INSERT INTO users (id, age, email, first_name, last_name, password)
+VALUES (1, 30, 'legacy@mail.ru', 'Legacy', NULL, '$2a$10$7EqJtq98hPqEX7fNZaFWoOa7d1ZyZ0T0G8qkG0sjU6n0w8bVb7c0m'),
+       (2, 40, 'legacy-admin@mail.ru', 'Second', NULL, '$2a$10$7EqJtq98hPqEX7fNZaFWoOa7d1ZyZ0T0G8qkG0sjU6n0w8bVb7c0m');
+INSERT INTO user_roles (user_id, role_id) VALUES (1, 1), (1, 2), (1, 3), (2, 3);